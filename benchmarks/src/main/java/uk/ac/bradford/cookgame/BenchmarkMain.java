@@ -0,0 +1,49 @@
+package uk.ac.bradford.cookgame;
+
+import java.io.File;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the benchmark jar. Accepts the normal JMH command line, but
+ * writes results as JSON to benchmarks/results/jmh-result.json unless -rf or
+ * -rff say otherwise, so runs can be compared between releases.
+ *
+ * @author JFarrow
+ */
+public class BenchmarkMain 
+{
+    private static final String DEFAULT_RESULT_FILE = "benchmarks/results/jmh-result.json";
+    
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException
+    {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        
+        if(!cmd.getResultFormat().hasValue())
+        {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if(!cmd.getResult().hasValue())
+        {
+            new File(DEFAULT_RESULT_FILE).getParentFile().mkdirs();
+            options.result(DEFAULT_RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+    
+    /**
+     * @param size a map size as given to the mapSize parameters, e.g. "35x18"
+     * @return the width and height in tiles
+     */
+    static int[] parseMapSize(String size)
+    {
+        int x = size.indexOf('x');
+        return new int[] {Integer.parseInt(size.substring(0, x)), Integer.parseInt(size.substring(x + 1))};
+    }
+}
@@ -0,0 +1,60 @@
+package uk.ac.bradford.cookgame;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures building a Level, which covers loading the tile map, genMap and
+ * spawnObstacles. The level asks for customerCount customers rather than the
+ * number that follows from the level number, and places up to four tables for
+ * each, so the level number only sets the difficulty. The tile map is stretched
+ * to the given map size.
+ *
+ * @author JFarrow
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LevelGenerationBenchmark 
+{
+    @Param({"0", "3", "10"})
+    public int levelNumber;
+    
+    @Param({"1", "10", "100"})
+    public int customerCount;
+    
+    @Param({"35x18", "70x36", "1000x1000"})
+    public String mapSize;
+    
+    private final GameRandom random = new GameRandom(42L);
+    
+    /**
+     * only used for its customers per level, levels ask their engine for that
+     */
+    private GameEngine engine;
+    private int mapWidth;
+    private int mapHeight;
+    
+    @Setup
+    public void setUp()
+    {
+        int[] size = BenchmarkMain.parseMapSize(mapSize);
+        mapWidth = size[0];
+        mapHeight = size[1];
+        engine = new GameEngine(NullRenderSink.INSTANCE, levelNumber, 42L);
+        engine.setCustomersPerLevel(customerCount);
+    }
+    
+    @Benchmark
+    public Level buildLevel()
+    {
+        return new Level(mapWidth, mapHeight, levelNumber, engine, random.split());
+    }
+}
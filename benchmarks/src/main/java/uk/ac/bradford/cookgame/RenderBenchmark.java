@@ -0,0 +1,107 @@
+package uk.ac.bradford.cookgame;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.ac.bradford.cookgame.GameEngine.TileType;
+
+/**
+ * Measures Canvas.drawLevel drawing into an off-screen BufferedImage, so no
+ * display is needed. The level is a walled room of the given size with tables
+ * scattered through it and customerCount customers on the floor. The canvas is
+ * the size of the game window, so levels bigger than that are culled to the
+ * view around the player and should cost about the same as the smallest.
+ * The background is drawn once, so this measures copying it and the entities.
+ * drawLevel disposes the Graphics it is given, so a new one is created before
+ * each call, outside the timed part.
+ *
+ * @author JFarrow
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark 
+{
+    @Param({"35x18", "70x36", "1000x1000"})
+    public String mapSize;
+    
+    @Param({"0", "10", "100"})
+    public int customerCount;
+    
+    /**
+     * the size of the canvas in the game window
+     */
+    private static final int VIEW_WIDTH = 1120;
+    private static final int VIEW_HEIGHT = 576;
+    
+    private Canvas canvas;
+    private BufferedImage target;
+    private Graphics2D graphics;
+    
+    @Setup
+    public void setUp()
+    {
+        if(!new File("assets").isDirectory())
+        {
+            throw new IllegalStateException("assets folder not found, run the benchmarks from the project root");
+        }
+        Random r = new Random(42);
+        int[] size = BenchmarkMain.parseMapSize(mapSize);
+        int mapWidth = size[0];
+        int mapHeight = size[1];
+        
+        TileGrid tiles = new TileGrid(mapWidth, mapHeight);
+        for(int i = 0; i < mapWidth; i++)
+        {
+            for(int j = 0; j < mapHeight; j++)
+            {
+                if(i == 0 || j == 0 || i == mapWidth-1 || j == mapHeight-1)
+                {
+                    tiles.set(i, j, TileType.WALL);
+                }
+                else
+                {
+                    tiles.set(i, j, r.nextInt(20) == 0 ? TileType.TABLE : TileType.FLOOR1);
+                }
+            }
+        }
+        
+        CustomerStore customers = new CustomerStore(mapWidth, mapHeight, customerCount);
+        for(int i = 0; i < customerCount; i++)
+        {
+            customers.add(1 + r.nextInt(mapWidth-2), 1 + r.nextInt(mapHeight-2), 10, 1 + r.nextInt(3));
+        }
+        Player player = new Player(0, mapWidth/2, mapHeight/2);
+        
+        canvas = new Canvas();
+        canvas.setSize(VIEW_WIDTH, VIEW_HEIGHT);
+        canvas.update(tiles, player, customers);
+        target = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+    }
+    
+    @Setup(Level.Invocation)
+    public void createGraphics()
+    {
+        graphics = target.createGraphics();
+    }
+    
+    @Benchmark
+    public BufferedImage drawLevel()
+    {
+        canvas.drawLevel(graphics);
+        return target;
+    }
+}
@@ -0,0 +1,58 @@
+package uk.ac.bradford.cookgame;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures a single game turn (movePlayer followed by doTurn) on a headless
+ * engine. Every level asks for customerCount customers rather than the
+ * number that follows from the level number, and the engine builds its levels
+ * at the given map size.
+ *
+ * @author JFarrow
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TurnLoopBenchmark 
+{
+    private static final char[] DIRECTIONS = {'U', 'R', 'D', 'L'};
+    
+    @Param({"0", "3", "10"})
+    public int levelNumber;
+    
+    @Param({"1", "10", "100"})
+    public int customerCount;
+    
+    @Param({"35x18", "70x36", "1000x1000"})
+    public String mapSize;
+    
+    private GameEngine engine;
+    private int turn;
+    
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        engine = new GameEngine(NullRenderSink.INSTANCE, levelNumber, 42L);
+        int[] size = BenchmarkMain.parseMapSize(mapSize);
+        engine.setLevelSize(size[0], size[1]);
+        engine.setCustomersPerLevel(customerCount);
+        engine.startGame();
+        turn = 0;
+    }
+    
+    @Benchmark
+    public void doTurn()
+    {
+        engine.movePlayer(DIRECTIONS[turn++ & 3]);
+        engine.doTurn();
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.awt.Color;
+import java.awt.Frame;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Toolkit;
+import java.awt.Transparency;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.locks.LockSupport;
+import javax.swing.SwingUtilities;
+
+/**
+ * Draws the game with active rendering instead of Swing repaints: a render
+ * thread draws the newest published frame into a BufferStrategy and flips it
+ * at a steady rate, up to a frame cap. The time taken to draw each frame is
+ * measured and shown in the window title once a second.
+ *
+ * This is a java.awt.Canvas, not the Swing Canvas class in this package, and
+ * does not take keyboard focus so key presses still reach the GameGUI frame.
+ *
+ * @author JFarrow
+ */
+public class ActiveCanvas extends java.awt.Canvas implements Runnable
+{
+    private static final long serialVersionUID = 1L;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final SpriteSet sprites = SpriteSet.shared();
+    private final int frameCap;
+
+    private volatile RenderFrame frame;     //newest frame published by the game
+    volatile TurnMetrics metrics;           //times each frame as DRAW_LEVEL when set
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * the tiles in view drawn once, redrawn when the level changes or the view scrolls
+     */
+    private BufferedImage background;
+    private TileGrid backgroundTiles;
+    private int backgroundX;
+    private int backgroundY;
+
+    /**
+     * the part of the level on screen, only used by the render thread
+     */
+    private final Camera camera = new Camera();
+
+    private volatile long frameCount;
+    private volatile long lastFrameNanos;
+
+    /**
+     * @param frameCap the most frames to draw a second, 0 for no limit
+     */
+    public ActiveCanvas(int frameCap)
+    {
+        this.frameCap = frameCap;
+        setIgnoreRepaint(true);     //everything is drawn by the render thread
+        setFocusable(false);
+        setBackground(Color.BLACK);
+    }
+
+    /**
+     * Makes a frame the one drawn from now on, can be called from any thread
+     * @param f the frame to draw
+     */
+    void publish(RenderFrame f)
+    {
+        frame = f;
+    }
+
+    /**
+     * @return the number of frames drawn so far
+     */
+    public long getFrameCount()
+    {
+        return frameCount;
+    }
+
+    /**
+     * @return the time in nanoseconds taken to draw and show the last frame
+     */
+    public long getLastFrameNanos()
+    {
+        return lastFrameNanos;
+    }
+
+    /**
+     * Creates the buffers and starts the render thread once the canvas is on screen
+     */
+    @Override
+    public void addNotify()
+    {
+        super.addNotify();
+        createBufferStrategy(2);
+        running = true;
+        thread = new Thread(this, "render-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the render thread before the canvas leaves the screen
+     */
+    @Override
+    public void removeNotify()
+    {
+        running = false;
+        if(thread != null)
+        {
+            try
+            {
+                thread.join();
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        super.removeNotify();
+    }
+
+    /**
+     * The render loop: draws a frame, then waits out the rest of the frame
+     * period. If drawing falls behind the loop carries on from now rather than
+     * trying to catch up.
+     */
+    @Override
+    public void run()
+    {
+        BufferStrategy strategy = getBufferStrategy();
+        long period = frameCap > 0 ? NANOS_PER_SECOND / frameCap : 0;
+        long next = System.nanoTime();
+        long second = next + NANOS_PER_SECOND;
+        long framesThisSecond = 0;
+        long nanosThisSecond = 0;
+        while(running)
+        {
+            long start = System.nanoTime();
+            render(strategy);
+            long took = System.nanoTime() - start;
+            TurnMetrics m = metrics;
+            if(m != null)
+            {
+                m.record(TurnMetrics.Phase.DRAW_LEVEL, start);
+            }
+            lastFrameNanos = took;
+            frameCount++;
+            framesThisSecond++;
+            nanosThisSecond += took;
+
+            long now = System.nanoTime();
+            if(now >= second)
+            {
+                showStats(framesThisSecond, nanosThisSecond);
+                framesThisSecond = 0;
+                nanosThisSecond = 0;
+                second = now + NANOS_PER_SECOND;
+            }
+            if(period > 0)
+            {
+                next += period;
+                long wait = next - now;
+                if(wait > 0)
+                {
+                    LockSupport.parkNanos(wait);
+                }
+                else
+                {
+                    next = now;
+                }
+            }
+            else
+            {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Draws the current frame into the back buffer and shows it, redrawing if
+     * the buffer contents were lost
+     */
+    private void render(BufferStrategy strategy)
+    {
+        do
+        {
+            do
+            {
+                Graphics2D g2 = (Graphics2D) strategy.getDrawGraphics();
+                drawFrame(g2, frame);
+                g2.dispose();
+            } while(strategy.contentsRestored());
+            strategy.show();
+        } while(strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    private void drawFrame(Graphics2D g2, RenderFrame f)
+    {
+        g2.setColor(getBackground());
+        g2.fillRect(0, 0, getWidth(), getHeight());
+        if(f == null){return;}
+
+        TileGrid tiles = f.getTiles();
+        if(tiles == null){return;}
+        camera.follow(f, getWidth(), getHeight());
+        if(background == null || backgroundTiles != tiles
+                || backgroundX != camera.getX() || backgroundY != camera.getY())
+        {
+            makeBackground(tiles);
+        }
+        g2.drawImage(background, 0, 0, null);
+
+        //only entities in view are drawn, at their level position moved by the camera
+        int minX = camera.getX();
+        int minY = camera.getY();
+        int maxX = minX + camera.getColumns() - 1;
+        int maxY = minY + camera.getRows() - 1;
+        g2.translate(-minX * GameGUI.TILE_WIDTH, -minY * GameGUI.TILE_HEIGHT);
+        for(int c = 0; c < f.getCustomerCount(); c++)
+        {
+            int x = f.getCustomerX(c);
+            int y = f.getCustomerY(c);
+            if(x < minX || x > maxX || y < minY || y > maxY)
+            {
+                continue;
+            }
+            sprites.drawCustomer(g2, x, y, f.getCustomerFood(c), f.getCustomerPatience(c), f.getCustomerMaxPatience(c));
+        }
+        if(f.hasPlayer())
+        {
+            sprites.drawPlayer(g2, f.getPlayerX(), f.getPlayerY(), f.getPlayerFood(),
+                    f.getPlayerStamina(), f.getPlayerMaxStamina());
+        }
+    }
+
+    /**
+     * Draws the tiles in view into a compatible image, which Java2D keeps in
+     * video memory. The image is only made again if the view changed size.
+     */
+    private void makeBackground(TileGrid tiles)
+    {
+        int w = camera.getColumns() * GameGUI.TILE_WIDTH;
+        int h = camera.getRows() * GameGUI.TILE_HEIGHT;
+        if(background == null || background.getWidth() != w || background.getHeight() != h)
+        {
+            GraphicsConfiguration gc = getGraphicsConfiguration();
+            background = gc == null
+                    ? new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB)
+                    : gc.createCompatibleImage(w, h, Transparency.OPAQUE);
+        }
+        Graphics2D g2 = background.createGraphics();
+        sprites.drawTiles(g2, tiles, camera.getX(), camera.getY(), camera.getColumns(), camera.getRows());
+        g2.dispose();
+        backgroundTiles = tiles;
+        backgroundX = camera.getX();
+        backgroundY = camera.getY();
+    }
+
+    /**
+     * Puts the frame rate and average frame time for the last second in the window title
+     */
+    private void showStats(long frames, long nanos)
+    {
+        final String stats = String.format(" - %d fps, %.2f ms/frame", frames, nanos / 1e6 / Math.max(frames, 1));
+        SwingUtilities.invokeLater(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                Frame window = (Frame) SwingUtilities.getWindowAncestor(ActiveCanvas.this);
+                if(window != null)
+                {
+                    window.setTitle(GameGUI.TITLE + stats);
+                }
+            }
+        });
+    }
+}
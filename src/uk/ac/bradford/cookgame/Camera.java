@@ -0,0 +1,104 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+/**
+ * The part of a level that fits on screen, in whole tiles. The view is kept
+ * centred on the player, but stops at the edges of the level rather than
+ * showing past them. A level that fits on screen is shown whole from its top
+ * left corner. Only the tiles and entities inside the view are drawn, so the
+ * cost of a frame depends on the size of the screen and not the level.
+ *
+ * @author JFarrow
+ */
+final class Camera
+{
+    private int x;
+    private int y;
+    private int columns;
+    private int rows;
+
+    /**
+     * Moves the view to follow the player of a frame
+     * @param f the frame about to be drawn
+     * @param pixelWidth the width of the area drawn to, 0 or less to show the whole level
+     * @param pixelHeight the height of the area drawn to, 0 or less to show the whole level
+     * @return true if the view moved or changed size
+     */
+    boolean follow(RenderFrame f, int pixelWidth, int pixelHeight)
+    {
+        TileGrid tiles = f.getTiles();
+        if(tiles == null)
+        {
+            return false;
+        }
+        int w = tiles.getWidth();
+        int h = tiles.getHeight();
+        int cols = fit(pixelWidth, GameGUI.TILE_WIDTH, w);
+        int rws = fit(pixelHeight, GameGUI.TILE_HEIGHT, h);
+        int nx = f.hasPlayer() ? centre(f.getPlayerX(), cols, w) : Math.min(x, w - cols);
+        int ny = f.hasPlayer() ? centre(f.getPlayerY(), rws, h) : Math.min(y, h - rws);
+        boolean changed = nx != x || ny != y || cols != columns || rws != rows;
+        x = nx;
+        y = ny;
+        columns = cols;
+        rows = rws;
+        return changed;
+    }
+
+    /**
+     * @return the number of tiles that fit in the given pixels, counting a
+     * partly shown tile, and no more than the level has
+     */
+    private static int fit(int pixels, int tileSize, int levelSize)
+    {
+        if(pixels <= 0)
+        {
+            return levelSize;
+        }
+        return Math.min(levelSize, (pixels + tileSize - 1) / tileSize);
+    }
+
+    /**
+     * @return the first tile of a view of the given size centred on target,
+     * kept inside the level
+     */
+    private static int centre(int target, int size, int levelSize)
+    {
+        return Math.max(0, Math.min(target - size / 2, levelSize - size));
+    }
+
+    /**
+     * @return the tile x position of the left of the view
+     */
+    int getX()
+    {
+        return x;
+    }
+
+    /**
+     * @return the tile y position of the top of the view
+     */
+    int getY()
+    {
+        return y;
+    }
+
+    /**
+     * @return the width of the view in tiles
+     */
+    int getColumns()
+    {
+        return columns;
+    }
+
+    /**
+     * @return the height of the view in tiles
+     */
+    int getRows()
+    {
+        return rows;
+    }
+}
@@ -0,0 +1,335 @@
+package uk.ac.bradford.cookgame;
+
+import java.awt.EventQueue;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.JPanel;
+
+/**
+ * Internal class used to draw elements within a JPanel. The Canvas class draws
+ * with the images of the shared SpriteSet, loaded from an asset folder inside
+ * the main project folder.
+ *
+ * @author prtrundl
+ */
+class Canvas extends JPanel {
+
+    private final SpriteSet sprites = SpriteSet.shared();  //images shared with any other view
+
+    RenderFrame currentFrame;   //the tiles, player and customers to display
+    volatile TurnMetrics metrics;   //times drawLevel when set
+
+    /**
+     * The newest frame published from another thread that the event thread has
+     * not shown yet, null if there is none. Frames published faster than they
+     * can be shown replace each other here, so only the newest is drawn.
+     */
+    private final AtomicReference<RenderFrame> pendingFrame = new AtomicReference<RenderFrame>();
+
+    /**
+     * Shows the pending frame, run on the event thread.
+     */
+    private final Runnable showPending = new Runnable() {
+        @Override
+        public void run() {
+            show(pendingFrame.getAndSet(null));
+        }
+    };
+
+    /**
+     * What is drawn on top of each tile, as packed by entitySignature, for the
+     * frame currently on screen. Used to work out which tiles need repainting
+     * when a new frame arrives. Indexed [y*width + x], like TileGrid.
+     */
+    private int[] drawnSignature;
+    private int[] nextSignature;
+
+    /**
+     * The tiles of the current level drawn once into an off-screen image, so a
+     * paint only has to copy it and draw the player and customers on top.
+     * background is an accelerated image that can lose its contents, in which
+     * case it is redrawn; backgroundImage is used when no accelerated image can
+     * be made, e.g. when running headless.
+     */
+    private VolatileImage background;
+    private BufferedImage backgroundImage;
+    private TileGrid backgroundTiles;   //the tiles the background was drawn from
+    private int backgroundX;            //the tile at the top left of the background
+    private int backgroundY;
+
+    /**
+     * The part of the level on screen, which follows the player on levels too
+     * big for the window.
+     */
+    private final Camera camera = new Camera();
+
+    /**
+     * Constructor that loads tile images for use in this class, if no other
+     * view has loaded them yet
+     */
+    public Canvas() {
+    }
+
+    /**
+     * Updates the current graphics on the screen to display the tiles, player
+     * and customers. Only the tiles whose player or customer changed are
+     * repainted, unless the level itself changed or the view scrolled.
+     *
+     * @param t The grid of TileTypes representing the current level of the
+     * game
+     * @param player The current player object, used to draw the player and its
+     * stamina
+     * @param customers The customers to display on the level with their
+     * patience bar
+     */
+    public void update(TileGrid t, Player player, CustomerStore customers) {
+        show(RenderFrame.capture(t, player, customers));
+    }
+
+    /**
+     * Hands a frame to the event thread to be shown. Safe to call from any
+     * thread, e.g. a GameLoop; the event thread is only woken if it was not
+     * already going to show a frame.
+     *
+     * @param frame the frame to show
+     */
+    void publish(RenderFrame frame) {
+        if (pendingFrame.getAndSet(frame) == null) {
+            EventQueue.invokeLater(showPending);
+        }
+    }
+
+    /**
+     * Makes a frame the current one and repaints what changed, must be called
+     * on the event thread.
+     */
+    private void show(RenderFrame frame) {
+        RenderFrame previous = currentFrame;
+        currentFrame = frame;
+        TileGrid t = frame.getTiles();
+        if (t == null) {
+            drawnSignature = null;
+            repaint();
+            return;
+        }
+        int width = t.getWidth();
+        boolean scrolled = camera.follow(frame, getWidth(), getHeight());
+        if (previous == null || previous.getTiles() != t) {
+            drawnSignature = new int[width * t.getHeight()];
+            nextSignature = new int[width * t.getHeight()];
+            writeSignatures(currentFrame, drawnSignature, width);
+            writeSignatures(currentFrame, nextSignature, width);
+            repaint();
+            return;
+        }
+
+        //nextSignature matches drawnSignature here, change it to the new frame
+        clearSignatures(previous, nextSignature, width);
+        writeSignatures(currentFrame, nextSignature, width);
+        if (scrolled) {
+            //every tile on screen moved, so repaint the lot
+            clearSignatures(previous, drawnSignature, width);
+            writeSignatures(currentFrame, drawnSignature, width);
+            repaint();
+            return;
+        }
+        repaintChanged(previous, width);
+        repaintChanged(currentFrame, width);
+    }
+
+    /**
+     * Repaints the tiles under the entities of a frame whose signature changed,
+     * bringing drawnSignature back in line with nextSignature for those tiles.
+     */
+    private void repaintChanged(RenderFrame f, int width) {
+        if (f.hasPlayer()) {
+            repaintIfChanged(f.getPlayerX(), f.getPlayerY(), width);
+        }
+        for (int i = 0; i < f.getCustomerCount(); i++) {
+            repaintIfChanged(f.getCustomerX(i), f.getCustomerY(i), width);
+        }
+    }
+
+    private void repaintIfChanged(int x, int y, int width) {
+        int cell = y * width + x;
+        if (drawnSignature[cell] != nextSignature[cell]) {
+            drawnSignature[cell] = nextSignature[cell];
+            repaint((x - camera.getX()) * GameGUI.TILE_WIDTH, (y - camera.getY()) * GameGUI.TILE_HEIGHT,
+                    GameGUI.TILE_WIDTH, GameGUI.TILE_HEIGHT);
+        }
+    }
+
+    private static void clearSignatures(RenderFrame f, int[] sig, int width) {
+        if (f.hasPlayer()) {
+            sig[f.getPlayerY() * width + f.getPlayerX()] = 0;
+        }
+        for (int i = 0; i < f.getCustomerCount(); i++) {
+            sig[f.getCustomerY(i) * width + f.getCustomerX(i)] = 0;
+        }
+    }
+
+    private static void writeSignatures(RenderFrame f, int[] sig, int width) {
+        for (int i = 0; i < f.getCustomerCount(); i++) {
+            sig[f.getCustomerY(i) * width + f.getCustomerX(i)] = entitySignature(false, f.getCustomerFood(i),
+                    SpriteSet.barWidth(f.getCustomerPatience(i), f.getCustomerMaxPatience(i)));
+        }
+        if (f.hasPlayer()) {
+            sig[f.getPlayerY() * width + f.getPlayerX()] = entitySignature(true, f.getPlayerFood(),
+                    SpriteSet.barWidth(f.getPlayerStamina(), f.getPlayerMaxStamina()));
+        }
+    }
+
+    /**
+     * Packs everything that affects how an entity looks on its tile into an
+     * int. 0 is reserved for an empty tile.
+     */
+    private static int entitySignature(boolean isPlayer, int food, int bar) {
+        return 1 | (isPlayer ? 2 : 0) | (food << 2) | (bar << 4);
+    }
+
+    /**
+     * Override of method in super class, it draws the custom elements for this
+     * game such as the tiles, player and customers.
+     *
+     * @param g Graphics drawing object
+     */
+    @Override
+    public void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        TurnMetrics m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        drawLevel(g);
+        if (m != null) {
+            m.record(TurnMetrics.Phase.DRAW_LEVEL, start);
+        }
+    }
+
+    /**
+     * Draws graphical elements to the screen to display the current game level
+     * tiles, the player and the customers. Only the part of the level in view
+     * of the camera is drawn. The tiles come from a cached background image of
+     * that part, only redrawn when the level changes or the view scrolls, and
+     * only entities inside the clip of the Graphics object are drawn. If the
+     * current frame has no tiles, player or customers they will not be drawn.
+     *
+     * @param g Graphics drawing object, disposed of once drawing is complete
+     */
+    void drawLevel(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        RenderFrame f = currentFrame;
+        if (f == null) {
+            g2.dispose();
+            return;
+        }
+        TileGrid currentTiles = f.getTiles();
+        camera.follow(f, getWidth(), getHeight());     //in case the window was resized
+
+        //tile range in view and covered by the clip
+        int minX = camera.getX();
+        int minY = camera.getY();
+        int maxX = minX + camera.getColumns() - 1;
+        int maxY = minY + camera.getRows() - 1;
+        Rectangle clip = g2.getClipBounds();
+        if (clip != null) {
+            maxX = Math.min(maxX, minX + (clip.x + clip.width - 1) / GameGUI.TILE_WIDTH);
+            maxY = Math.min(maxY, minY + (clip.y + clip.height - 1) / GameGUI.TILE_HEIGHT);
+            minX += Math.max(0, clip.x / GameGUI.TILE_WIDTH);
+            minY += Math.max(0, clip.y / GameGUI.TILE_HEIGHT);
+        }
+
+        if (currentTiles != null) {
+            drawBackground(g2, currentTiles);
+        }
+        //entities are drawn at their level position, moved by the camera
+        g2.translate(-camera.getX() * GameGUI.TILE_WIDTH, -camera.getY() * GameGUI.TILE_HEIGHT);
+        for (int c = 0; c < f.getCustomerCount(); c++) {
+            int x = f.getCustomerX(c);
+            int y = f.getCustomerY(c);
+            if (x < minX || x > maxX || y < minY || y > maxY) {
+                continue;
+            }
+            sprites.drawCustomer(g2, x, y, f.getCustomerFood(c), f.getCustomerPatience(c), f.getCustomerMaxPatience(c));
+        }
+        if (f.hasPlayer()) {
+            int x = f.getPlayerX();
+            int y = f.getPlayerY();
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                sprites.drawPlayer(g2, x, y, f.getPlayerFood(), f.getPlayerStamina(), f.getPlayerMaxStamina());
+            }
+        }
+        g2.dispose();
+    }
+
+    /**
+     * Copies the cached background for the tiles in view to the screen,
+     * drawing it first if the level changed, the view scrolled or the
+     * accelerated image was lost. The image only covers the view, so a big
+     * level costs no more to draw than a small one.
+     *
+     * @param g2 The graphics object to use for drawing
+     * @param tiles The tiles of the current level
+     */
+    private void drawBackground(Graphics2D g2, TileGrid tiles) {
+        int w = camera.getColumns() * GameGUI.TILE_WIDTH;
+        int h = camera.getRows() * GameGUI.TILE_HEIGHT;
+        boolean stale = backgroundTiles != tiles || backgroundX != camera.getX() || backgroundY != camera.getY();
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null || backgroundImage != null) {
+            //not on screen, or no accelerated image could be made for this view
+            if (backgroundImage == null || backgroundImage.getWidth() != w || backgroundImage.getHeight() != h) {
+                backgroundImage = gc == null
+                        ? new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB)
+                        : gc.createCompatibleImage(w, h, Transparency.OPAQUE);
+                stale = true;
+            }
+            if (stale) {
+                renderTiles(backgroundImage.createGraphics(), tiles);
+            }
+            g2.drawImage(backgroundImage, 0, 0, null);
+            return;
+        }
+
+        do {
+            int valid = background == null ? VolatileImage.IMAGE_INCOMPATIBLE : background.validate(gc);
+            if (valid == VolatileImage.IMAGE_INCOMPATIBLE || background.getWidth() != w || background.getHeight() != h) {
+                if (background != null) {
+                    background.flush();
+                }
+                background = createVolatileImage(w, h);
+                if (background == null) {
+                    backgroundImage = gc.createCompatibleImage(w, h, Transparency.OPAQUE);
+                    renderTiles(backgroundImage.createGraphics(), tiles);
+                    g2.drawImage(backgroundImage, 0, 0, null);
+                    return;
+                }
+                valid = VolatileImage.IMAGE_RESTORED;
+            }
+            if (valid == VolatileImage.IMAGE_RESTORED || stale) {
+                renderTiles(background.createGraphics(), tiles);
+                stale = false;
+            }
+            g2.drawImage(background, 0, 0, null);
+        } while (background.contentsLost());
+    }
+
+    /**
+     * Draws the tiles in view of the camera and remembers which they were.
+     *
+     * @param g2 The graphics object to draw to, disposed of once drawing is
+     * complete
+     * @param currentTiles The tiles to draw
+     */
+    private void renderTiles(Graphics2D g2, TileGrid currentTiles) {
+        sprites.drawTiles(g2, currentTiles, camera.getX(), camera.getY(), camera.getColumns(), camera.getRows());
+        g2.dispose();
+        backgroundTiles = currentTiles;
+        backgroundX = camera.getX();
+        backgroundY = camera.getY();
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.util.Arrays;
+import uk.ac.bradford.cookgame.GameEngine.TileType;
+
+/**
+ * The customers of a level stored as parallel arrays, one slot per customer,
+ * rather than one object each. Slots 0 to size()-1 are always live:
+ * removing a customer moves the last one into its slot, so loops over the
+ * customers never pass over empty entries and stay cheap with large crowds.
+ * Whether a customer has been fed or has sat down is kept in packed bitsets.
+ *
+ * Removing a customer changes the slot of the last customer, so slot numbers
+ * should not be kept across a call to remove. The store also indexes which
+ * slot is on each tile, for collision and delivery checks.
+ *
+ * @author JFarrow
+ */
+public final class CustomerStore
+{
+    private final int width;
+    private final int height;
+
+    private int count;
+    private int[] x;
+    private int[] y;
+    private int[] patience;
+    private int[] maxPatience;
+    private int[] foodWanted;
+
+    /**
+     * the seat id of each seated customer, -1 for the others
+     */
+    private int[] seat;
+
+    private long[] fed;
+    private long[] seated;
+
+    /**
+     * the slot on each tile, -1 for none. Indexed [y*width + x], like TileGrid
+     */
+    private final int[] slotAt;
+
+    /**
+     * @param w width of the level in tiles
+     * @param h height of the level in tiles
+     * @param capacity the number of customers expected, the store grows past this if needed
+     */
+    public CustomerStore(int w, int h, int capacity)
+    {
+        width = w;
+        height = h;
+        capacity = Math.max(capacity, 1);
+        x = new int[capacity];
+        y = new int[capacity];
+        patience = new int[capacity];
+        maxPatience = new int[capacity];
+        foodWanted = new int[capacity];
+        seat = new int[capacity];
+        fed = new long[words(capacity)];
+        seated = new long[words(capacity)];
+        slotAt = new int[w * h];
+        Arrays.fill(slotAt, -1);
+    }
+
+    private static int words(int bits)
+    {
+        return (bits + 63) >>> 6;
+    }
+
+    /**
+     * Adds a customer with full patience
+     * @param cx tile x position
+     * @param cy tile y position
+     * @param maxPatience the most patience the customer can have
+     * @param food the food wanted, 1 to 3, anything else becomes 1
+     * @return the new customer's slot
+     */
+    public int add(int cx, int cy, int maxPatience, int food)
+    {
+        if(count == x.length)
+        {
+            grow();
+        }
+        if(food < 1 || food > 3)
+        {
+            food = 1;
+        }
+        int i = count++;
+        x[i] = cx;
+        y[i] = cy;
+        patience[i] = maxPatience;
+        this.maxPatience[i] = maxPatience;
+        foodWanted[i] = food;
+        seat[i] = -1;
+        clear(fed, i);
+        clear(seated, i);
+        if(inBounds(cx, cy))
+        {
+            slotAt[cy * width + cx] = i;
+        }
+        return i;
+    }
+
+    private void grow()
+    {
+        int n = x.length * 2;
+        x = Arrays.copyOf(x, n);
+        y = Arrays.copyOf(y, n);
+        patience = Arrays.copyOf(patience, n);
+        maxPatience = Arrays.copyOf(maxPatience, n);
+        foodWanted = Arrays.copyOf(foodWanted, n);
+        seat = Arrays.copyOf(seat, n);
+        fed = Arrays.copyOf(fed, words(n));
+        seated = Arrays.copyOf(seated, words(n));
+    }
+
+    /**
+     * Removes a customer by moving the last customer into its slot
+     * @param i the slot to remove
+     */
+    public void remove(int i)
+    {
+        int last = count - 1;
+        if(inBounds(x[i], y[i]) && slotAt[y[i] * width + x[i]] == i)
+        {
+            slotAt[y[i] * width + x[i]] = -1;
+        }
+        if(i != last)
+        {
+            x[i] = x[last];
+            y[i] = y[last];
+            patience[i] = patience[last];
+            maxPatience[i] = maxPatience[last];
+            foodWanted[i] = foodWanted[last];
+            seat[i] = seat[last];
+            copyBit(fed, last, i);
+            copyBit(seated, last, i);
+            if(inBounds(x[i], y[i]))
+            {
+                slotAt[y[i] * width + x[i]] = i;
+            }
+        }
+        clear(fed, last);
+        clear(seated, last);
+        count = last;
+    }
+
+    /**
+     * @return the number of customers, all in slots 0 to size()-1
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    public int getX(int i)
+    {
+        return x[i];
+    }
+
+    public int getY(int i)
+    {
+        return y[i];
+    }
+
+    /**
+     * Moves a customer to another tile
+     * @param i the slot
+     * @param nx the new x position
+     * @param ny the new y position
+     */
+    public void moveTo(int i, int nx, int ny)
+    {
+        if(inBounds(x[i], y[i]) && slotAt[y[i] * width + x[i]] == i)
+        {
+            slotAt[y[i] * width + x[i]] = -1;
+        }
+        x[i] = nx;
+        y[i] = ny;
+        if(inBounds(nx, ny))
+        {
+            slotAt[ny * width + nx] = i;
+        }
+    }
+
+    /**
+     * @param tx tile x position
+     * @param ty tile y position
+     * @return the slot of the customer on the tile, -1 if there is none
+     */
+    public int slotAt(int tx, int ty)
+    {
+        if(!inBounds(tx, ty)){return -1;}
+        return slotAt[ty * width + tx];
+    }
+
+    public boolean isOccupied(int tx, int ty)
+    {
+        return slotAt(tx, ty) >= 0;
+    }
+
+    /**
+     * @param tile the tile to walk onto, null outside the level
+     * @return true for tiles that do not block movement, i.e. floor tiles
+     */
+    public static boolean canWalkOn(TileType tile)
+    {
+        return tile != null && !TileFlags.blocksMovement(TileFlags.of(tile));
+    }
+
+    private boolean inBounds(int tx, int ty)
+    {
+        return tx >= 0 && ty >= 0 && tx < width && ty < height;
+    }
+
+    public int getPatience(int i)
+    {
+        return patience[i];
+    }
+
+    public int getMaxPatience(int i)
+    {
+        return maxPatience[i];
+    }
+
+    /**
+     * Changes a customer's patience, kept between 0 and its max
+     * @param i the slot
+     * @param change the amount to add, negative to reduce it
+     */
+    public void changePatience(int i, int change)
+    {
+        int p = patience[i] + change;
+        if(p > maxPatience[i])
+        {
+            p = maxPatience[i];
+        }
+        if(p < 0)
+        {
+            p = 0;
+        }
+        patience[i] = p;
+    }
+
+    /**
+     * @return 1 for red food, 2 for green food, 3 for brown food
+     */
+    public int getFoodWanted(int i)
+    {
+        return foodWanted[i];
+    }
+
+    public boolean isFed(int i)
+    {
+        return get(fed, i);
+    }
+
+    public void feed(int i)
+    {
+        set(fed, i);
+    }
+
+    public boolean isSeated(int i)
+    {
+        return get(seated, i);
+    }
+
+    /**
+     * @return the seat id the customer sat down on, -1 if they have not
+     */
+    public int getSeat(int i)
+    {
+        return seat[i];
+    }
+
+    public void sitDown(int i, int seatId)
+    {
+        seat[i] = seatId;
+        set(seated, i);
+    }
+
+    /**
+     * Finds fed customers from the end of the store backwards, so they can be
+     * removed while searching: removing slot i only moves a slot above i
+     * @param from the highest slot to look at
+     * @return the highest fed slot at or below from, -1 if there is none
+     */
+    public int previousFed(int from)
+    {
+        if(from < 0){return -1;}
+        int w = from >>> 6;
+        long bits = fed[w] & (-1L >>> (63 - (from & 63)));
+        while(true)
+        {
+            if(bits != 0)
+            {
+                return (w << 6) + 63 - Long.numberOfLeadingZeros(bits);
+            }
+            if(w == 0){return -1;}
+            bits = fed[--w];
+        }
+    }
+
+    /**
+     * copies the drawn values of every customer into arrays of at least size() elements
+     */
+    void copyTo(int[] xs, int[] ys, int[] patiences, int[] maxPatiences, int[] foods)
+    {
+        System.arraycopy(x, 0, xs, 0, count);
+        System.arraycopy(y, 0, ys, 0, count);
+        System.arraycopy(patience, 0, patiences, 0, count);
+        System.arraycopy(maxPatience, 0, maxPatiences, 0, count);
+        System.arraycopy(foodWanted, 0, foods, 0, count);
+    }
+
+    private static boolean get(long[] bits, int i)
+    {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] bits, int i)
+    {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    private static void clear(long[] bits, int i)
+    {
+        bits[i >>> 6] &= ~(1L << i);
+    }
+
+    private static void copyBit(long[] bits, int from, int to)
+    {
+        if(get(bits, from))
+        {
+            set(bits, to);
+        }
+        else
+        {
+            clear(bits, to);
+        }
+    }
+}
@@ -3,8 +3,8 @@ package uk.ac.bradford.cookgame;
 import uk.ac.bradford.cookgame.GameEngine.TileType;
 
 /**
- * The Entity class stores basic state information for both the Player and
- * Customer object types in the game.
+ * The Entity class stores basic state information for the Player in the
+ * game.
  *
  * @author prtrundl
  */
@@ -62,12 +62,14 @@ public abstract class Entity {
      * parent collision function
      * @param neighbour neighbouring tile
      * @param exclusion any excluded TileType
-     * @return true by default, exclusion. false on Wall, Door, table
+     * @return true by default, exclusion. false on Wall, Door, table. Food
+     * blocks movement too, but what walking into it does is up to the subclass
      */
     public boolean collisionCheck(TileType neighbour, TileType exclusion)
     {
-
-        if(neighbour == null || neighbour == TileType.WALL || neighbour == TileType.TABLE || neighbour == TileType.DOOR){return false;}
+        if(neighbour == null){return false;}
+        int flags = TileFlags.of(neighbour);
+        if(TileFlags.blocksMovement(flags) && !TileFlags.isFood(flags)){return false;}
         if(neighbour == exclusion){return true;}
         
         return true;   
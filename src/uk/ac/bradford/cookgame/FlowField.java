@@ -0,0 +1,338 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A distance field over the level giving, for every floor tile, the number of
+ * steps to the nearest free seat. One field is shared by every customer in a
+ * level: a customer walks to a free seat by stepping to whichever neighbour has
+ * a smaller distance, so the cost of pathfinding does not depend on how many
+ * customers there are.
+ * 
+ * The field is built once with a breadth first search from all free seats and
+ * then patched when a seat is taken or freed, rather than rebuilt.
+ *
+ * @author JFarrow
+ */
+public class FlowField 
+{
+    /**
+     * distance used for tiles that cannot reach a free seat
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    
+    /**
+     * step directions, matching the direction numbers used by GameEngine.moveCustomer
+     * 0 is left, 1 is right, 2 is up, 3 is down
+     */
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+    
+    private final int width;
+    private final int height;
+    private final SeatIndex seats;
+    
+    /**
+     * tiles customers can walk on. All fields below are indexed [y*width + x], like TileGrid
+     */
+    private final boolean[] walkable;
+    
+    /**
+     * steps to the nearest free seat
+     */
+    private final int[] dist;
+    
+    /**
+     * the seat each tile's distance was measured to, -1 if unreachable
+     */
+    private final int[] source;
+    
+    //scratch space reused by every update
+    private final int[] queue;
+    private final int[] region;
+    private long[] seeds;
+    
+    /**
+     * Builds the field for a finished level layout
+     * @param layout the level tiles, including tables
+     * @param seats the tables and seats of the level
+     */
+    public FlowField(TileGrid layout, SeatIndex seats)
+    {
+        this(layout, seats, null);
+    }
+    
+    /**
+     * Restores a field from state written by writeTo, skipping the search
+     * @param layout the level tiles, including tables
+     * @param seats the tables and seats of the level
+     * @param saved a buffer positioned at the saved field, or null to build it
+     */
+    FlowField(TileGrid layout, SeatIndex seats, ByteBuffer saved)
+    {
+        width = layout.getWidth();
+        height = layout.getHeight();
+        this.seats = seats;
+        
+        int size = width * height;
+        walkable = new boolean[size];
+        dist = new int[size];
+        source = new int[size];
+        queue = new int[size];
+        region = new int[size];
+        seeds = new long[16];
+        
+        for(int i = 0; i < width; i++)
+        {
+            for(int j = 0; j < height; j++)
+            {
+                walkable[j * width + i] = !TileFlags.blocksMovement(layout.flags(i, j));
+            }
+        }
+        if(saved == null)
+        {
+            rebuild();
+        }
+        else
+        {
+            saved.asIntBuffer().get(dist).get(source);
+            saved.position(saved.position() + size * 8);
+        }
+    }
+    
+    /**
+     * writes the distances and their seats, for a GameSnapshot
+     * @param buf the buffer to write to
+     */
+    void writeTo(ByteBuffer buf)
+    {
+        buf.asIntBuffer().put(dist).put(source);
+        buf.position(buf.position() + dist.length * 8);
+    }
+    
+    /**
+     * recalculates the whole field from the free seats in the seat index
+     */
+    public final void rebuild()
+    {
+        Arrays.fill(dist, UNREACHABLE);
+        Arrays.fill(source, -1);
+        int tail = 0;
+        for(int s = 0; s < seats.getSeatCount(); s++)
+        {
+            if(!seats.isFree(s)){continue;}
+            int cell = seats.getSeatY(s) * width + seats.getSeatX(s);
+            dist[cell] = 0;
+            source[cell] = s;
+            queue[tail++] = cell;
+        }
+        spread(0, tail);
+    }
+    
+    /**
+     * Patches the field after a seat became free. Only tiles that are now
+     * closer to this seat than to any other are visited.
+     * @param seat the seat id
+     */
+    public void seatFreed(int seat)
+    {
+        int cell = seats.getSeatY(seat) * width + seats.getSeatX(seat);
+        dist[cell] = 0;
+        source[cell] = seat;
+        queue[0] = cell;
+        spread(0, 1);
+    }
+    
+    /**
+     * Patches the field after a seat was taken. Tiles that were measured to
+     * this seat are cleared, then refilled from the edge of the cleared area,
+     * so only that area is visited.
+     * @param seat the seat id
+     */
+    public void seatTaken(int seat)
+    {
+        int start = seats.getSeatY(seat) * width + seats.getSeatX(seat);
+        if(source[start] != seat){return;}
+        
+        //collect every tile whose nearest seat was this one
+        int count = 0;
+        region[count++] = start;
+        source[start] = -1;
+        for(int r = 0; r < count; r++)
+        {
+            int cell = region[r];
+            int x = cell % width;
+            int y = cell / width;
+            for(int d = 0; d < 4; d++)
+            {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if(nx < 0 || ny < 0 || nx >= width || ny >= height){continue;}
+                int n = ny * width + nx;
+                if(source[n] == seat)
+                {
+                    source[n] = -1;
+                    region[count++] = n;
+                }
+            }
+        }
+        for(int r = 0; r < count; r++)
+        {
+            dist[region[r]] = UNREACHABLE;
+        }
+        
+        //seed the cleared tiles from their neighbours outside it, packed as dist << 32 | cell
+        int seedCount = 0;
+        for(int r = 0; r < count; r++)
+        {
+            int cell = region[r];
+            int x = cell % width;
+            int y = cell / width;
+            int best = UNREACHABLE;
+            for(int d = 0; d < 4; d++)
+            {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if(nx < 0 || ny < 0 || nx >= width || ny >= height){continue;}
+                int n = ny * width + nx;
+                if(dist[n] != UNREACHABLE && dist[n] + 1 < best)
+                {
+                    best = dist[n] + 1;
+                }
+            }
+            if(best != UNREACHABLE)
+            {
+                if(seedCount == seeds.length)
+                {
+                    seeds = Arrays.copyOf(seeds, seedCount * 2);
+                }
+                seeds[seedCount++] = ((long) best << 32) | cell;
+            }
+        }
+        Arrays.sort(seeds, 0, seedCount);
+        
+        //breadth first search, taking from the sorted seeds whenever they are nearer than the queue
+        int head = 0;
+        int tail = 0;
+        int next = 0;
+        while(next < seedCount || head != tail)
+        {
+            int cell;
+            if(head == tail || (next < seedCount && (int) (seeds[next] >>> 32) <= dist[queue[head]]))
+            {
+                cell = (int) seeds[next];
+                int d = (int) (seeds[next] >>> 32);
+                next++;
+                if(d >= dist[cell]){continue;}
+                dist[cell] = d;
+                source[cell] = nearestSource(cell, d);
+            }
+            else
+            {
+                cell = queue[head];
+                head = (head + 1) % queue.length;
+            }
+            tail = relax(cell, tail);
+        }
+    }
+    
+    /**
+     * @return the seat of a neighbour one step closer, used to label a seeded tile
+     */
+    private int nearestSource(int cell, int d)
+    {
+        int x = cell % width;
+        int y = cell / width;
+        for(int k = 0; k < 4; k++)
+        {
+            int nx = x + DX[k];
+            int ny = y + DY[k];
+            if(nx < 0 || ny < 0 || nx >= width || ny >= height){continue;}
+            int n = ny * width + nx;
+            if(dist[n] == d - 1)
+            {
+                return source[n];
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * runs the breadth first search for tiles already in the queue
+     */
+    private void spread(int head, int tail)
+    {
+        while(head != tail)
+        {
+            int cell = queue[head];
+            head = (head + 1) % queue.length;
+            tail = relax(cell, tail);
+        }
+    }
+    
+    /**
+     * lowers the distance of the neighbours of a tile where going through it is shorter
+     * @return the new queue tail
+     */
+    private int relax(int cell, int tail)
+    {
+        int x = cell % width;
+        int y = cell / width;
+        int nd = dist[cell] + 1;
+        for(int d = 0; d < 4; d++)
+        {
+            int nx = x + DX[d];
+            int ny = y + DY[d];
+            if(nx < 0 || ny < 0 || nx >= width || ny >= height){continue;}
+            int n = ny * width + nx;
+            if(walkable[n] && nd < dist[n])
+            {
+                dist[n] = nd;
+                source[n] = source[cell];
+                queue[tail] = n;
+                tail = (tail + 1) % queue.length;
+            }
+        }
+        return tail;
+    }
+    
+    /**
+     * @param x tile x position
+     * @param y tile y position
+     * @return steps from this tile to the nearest free seat, UNREACHABLE if there is none
+     */
+    public int getDistance(int x, int y)
+    {
+        return dist[y * width + x];
+    }
+    
+    /**
+     * Picks the step down the gradient from a tile
+     * @param x tile x position
+     * @param y tile y position
+     * @return 0 left, 1 right, 2 up, 3 down, or -1 if no neighbour is closer to a free seat
+     */
+    public int nextStep(int x, int y)
+    {
+        int best = dist[y * width + x];
+        int dir = -1;
+        for(int d = 0; d < 4; d++)
+        {
+            int nx = x + DX[d];
+            int ny = y + DY[d];
+            if(nx < 0 || ny < 0 || nx >= width || ny >= height){continue;}
+            int n = ny * width + nx;
+            if(dist[n] < best)
+            {
+                best = dist[n];
+                dir = d;
+            }
+        }
+        return dir;
+    }
+}
@@ -1,7 +1,6 @@
 package uk.ac.bradford.cookgame;
 
-import java.util.ArrayList;
-import java.awt.Point;
+import java.nio.ByteBuffer;
 
 
 /**
@@ -28,19 +27,37 @@ public class GameEngine {
     }
 
     /**
-     * The width of the level, measured in tiles. Changing this may cause the
-     * display to draw incorrectly, and as a minimum the size of the GUI would
-     * need to be adjusted.
+     * The default width of the level, measured in tiles, which fits the GUI
+     * window without scrolling. This is also the smallest level width, as it
+     * is the width of the level templates.
      */
     public static final int LEVEL_WIDTH = 35;
 
     /**
-     * The height of the level, measured in tiles. Changing this may cause the
-     * display to draw incorrectly, and as a minimum the size of the GUI would
-     * need to be adjusted.
+     * The default height of the level, measured in tiles, which fits the GUI
+     * window without scrolling. This is also the smallest level height.
      */
     public static final int LEVEL_HEIGHT = 18;
 
+    /**
+     * The size of the levels built by this engine, in tiles. Levels bigger
+     * than the window scroll to follow the player.
+     */
+    private int levelWidth = LEVEL_WIDTH;
+    private int levelHeight = LEVEL_HEIGHT;
+
+    /**
+     * True to build levels with a ProceduralMap instead of the Tilemap
+     * templates.
+     */
+    private boolean proceduralLevels;
+
+    /**
+     * The number of customers every level asks for, or 0 for the number that
+     * follows from the level number.
+     */
+    private int customersPerLevel;
+
 
     /**
      * The current level number for the game. As the player completes levels the
@@ -62,25 +79,32 @@ public class GameEngine {
     private int score = 0;
 
     /**
-     * The GUI associated with this GameEngine object. This link allows the
-     * engine to pass level and entity information to the GUI to be drawn.
+     * The sink associated with this GameEngine object. This link allows the
+     * engine to pass level and entity information to the GUI to be drawn, or
+     * to a headless sink when no GUI is needed.
      */
-    private final GameGUI gui;
+    private final RenderSink gui;
 
     /**
-     * The 2 dimensional array of tiles that represent the current level. The
-     * size of this array should use the LEVEL_HEIGHT and LEVEL_WIDTH attributes
-     * when it is created. This is the array that is used to draw images to the
+     * The grid of tiles that represent the current level. The size of this
+     * grid should use the LEVEL_HEIGHT and LEVEL_WIDTH attributes when it is
+     * created. This is the array that is used to draw images to the
      * screen by the GUI class.
      */
-    private TileType[][] layout;
+    private TileGrid layout;
     private Level currentLevel;
 
     /**
-     * An ArrayList of Point objects used to create and track possible locations
-     * to place the player and customers when a new level is created.
+     * The possible locations to place customers when a new level is created,
+     * packed as y*width + x. Shared with the level, so never changed here.
+     */
+    private int[] spawnLocations;
+
+    /**
+     * The spawn locations packed as y*width + x, reused from level to level
+     * and shuffled in place when picking where customers start.
      */
-    private ArrayList<Point> spawnLocations;
+    private int[] spawnCells = new int[0];
 
     /**
      * A Player object that is the current player. This object stores the state
@@ -93,42 +117,274 @@ public class GameEngine {
     private Player player;
 
     /**
-     * An array of Customer objects that represents the customers in the current
-     * level of the game. Elements in this array should be either an object of
-     * the type Customer (meaning that a customer is exists (not fed/cleared
-     * yet) and therefore needs to be drawn or moved) or should be null (which
-     * means nothing is drawn or processed for movement). null values in this
-     * array are skipped during drawing and movement processing. Customers that
-     * the player correctly feeds can be replaced with (i.e. assigned) the value
-     * null in this array which removes them from the game, using syntax such as
-     * customers[i] = null.
+     * The customers in the current level of the game, stored as parallel
+     * arrays with one slot per customer. Every slot up to customers.size() is
+     * a customer that exists (not fed/cleared yet) and needs to be drawn or
+     * moved. Customers that the player has fed and that have been cleared are
+     * removed from the store, which moves the last customer into their slot.
      */
-    private Customer[] customers;
+    private CustomerStore customers;
     private int fedCustomers;
 
+    /**
+     * The seed this game was started from and the random source built from it.
+     * Every random choice in the game comes from here, so two games with the
+     * same seed play out the same way for the same key presses.
+     */
+    private long seed;
+    private GameRandom random;
+
+    /**
+     * A copy of the random source handed to the pipeline for the next level,
+     * kept so a restored snapshot builds the same next level.
+     */
+    private GameRandom nextLevelRandom;
+
+    /**
+     * Builds the next level while the current one is played. Unless a
+     * different pipeline is set, levels are only built when they are needed,
+     * on the calling thread.
+     */
+    private LevelPipeline pipeline = LevelPipeline.onDemand();
+
+    /**
+     * Whether the score is printed to standard output each time a customer is
+     * fed. Batch runs turn this off.
+     */
+    private boolean printScore = true;
+
+    /**
+     * Records the move made on each turn when set, so the game can be replayed.
+     */
+    private ReplayRecorder recorder;
+
+    /**
+     * Saved to at the end of every turn when set.
+     */
+    private GameSnapshot autosave;
+
+    /**
+     * Timings and counters for each turn, null when not measured.
+     */
+    private TurnMetrics metrics;
+
     /**
      * Constructor that creates a GameEngine object and connects it with a
-     * GameGUI object.
+     * RenderSink object, usually the GameGUI.
      *
-     * @param gui The GameGUI object that this engine will pass information to
-     * in order to draw levels and entities to the screen.
+     * @param gui The RenderSink object that this engine will pass information
+     * to in order to draw levels and entities to the screen. Pass
+     * NullRenderSink.INSTANCE or a SnapshotRenderSink to run headless.
      */
-    public GameEngine(GameGUI gui) {
+    public GameEngine(RenderSink gui) {
+        this(gui, 0, GameRandom.randomSeed());
+    }
+
+    /**
+     * Constructor that creates a GameEngine object whose random choices all
+     * come from the given seed, so the game can be repeated exactly.
+     *
+     * @param gui The RenderSink object that this engine will pass information
+     * to.
+     * @param seed the seed for this game session
+     */
+    public GameEngine(RenderSink gui, long seed) {
+        this(gui, 0, seed);
+    }
+
+    /**
+     * Constructor that creates a GameEngine object which starts on the given
+     * level rather than level 0. Used by benchmarks and batch runs.
+     *
+     * @param gui The RenderSink object that this engine will pass information
+     * to.
+     * @param startLevel the level number the first call to startGame builds
+     * @param seed the seed for this game session
+     */
+    GameEngine(RenderSink gui, int startLevel, long seed) {
         this.gui = gui;
+        this.levelNumber = startLevel;
+        this.seed = seed;
+        this.random = new GameRandom(seed);
+    }
+
+    /**
+     * Sets how upcoming levels are built, e.g. LevelPipeline.background() to
+     * build them on another thread. Must be called before startGame.
+     *
+     * @param p the pipeline to use
+     */
+    public void setLevelPipeline(LevelPipeline p) {
+        pipeline = p;
+    }
+
+    /**
+     * Sets the size of the levels this engine builds. Must be called before
+     * startGame.
+     *
+     * @param width the level width in tiles, at least LEVEL_WIDTH
+     * @param height the level height in tiles, at least LEVEL_HEIGHT
+     */
+    public void setLevelSize(int width, int height) {
+        if (width < LEVEL_WIDTH || height < LEVEL_HEIGHT) {
+            throw new IllegalArgumentException("levels must be at least " + LEVEL_WIDTH + "x" + LEVEL_HEIGHT
+                    + " tiles, got " + width + "x" + height);
+        }
+        levelWidth = width;
+        levelHeight = height;
+    }
+
+    /**
+     * @return the width in tiles of the levels this engine builds
+     */
+    public int getLevelWidth() {
+        return levelWidth;
+    }
+
+    /**
+     * @return the height in tiles of the levels this engine builds
+     */
+    public int getLevelHeight() {
+        return levelHeight;
+    }
+
+    /**
+     * Sets whether levels are made by a ProceduralMap, seeded from the game,
+     * instead of being built from the Tilemap templates. Must be called before
+     * startGame.
+     *
+     * @param procedural true for procedural levels
+     */
+    public void setProceduralLevels(boolean procedural) {
+        proceduralLevels = procedural;
+    }
+
+    /**
+     * @return true if this engine builds procedural levels
+     */
+    public boolean isProceduralLevels() {
+        return proceduralLevels;
+    }
+
+    /**
+     * Sets how many customers every level asks for, instead of the number
+     * that follows from the level number, so the cost of customers can be
+     * measured on its own. Used by benchmarks. The setting is not saved in
+     * snapshots or replays. Must be called before startGame.
+     *
+     * @param count the customers per level, or 0 to follow the level number
+     */
+    void setCustomersPerLevel(int count) {
+        customersPerLevel = count;
+    }
+
+    /**
+     * @return the customers every level asks for, or 0 if that follows from
+     * the level number
+     */
+    int getCustomersPerLevel() {
+        return customersPerLevel;
+    }
+
+    /**
+     * @return the seed this game session was started from
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Turns printing the score on each delivery on or off.
+     *
+     * @param print false to keep batch runs quiet
+     */
+    public void setPrintScore(boolean print) {
+        printScore = print;
+    }
+
+    /**
+     * Records every turn played through playTurn from now on. Set this before
+     * startGame so the replay starts from the beginning of the game.
+     *
+     * @param r the recorder, or null to stop recording
+     */
+    public void setReplayRecorder(ReplayRecorder r) {
+        recorder = r;
+    }
+
+    /**
+     * Saves the whole game to a snapshot at the end of every turn played
+     * through playTurn.
+     *
+     * @param s the snapshot to save to, e.g. one mapped to a file, or null to
+     * stop saving
+     */
+    public void setAutosave(GameSnapshot s) {
+        autosave = s;
+    }
+
+    /**
+     * Records the time and allocation of every turn from now on.
+     *
+     * @param m the metrics to record to, or null to stop
+     */
+    public void setMetrics(TurnMetrics m) {
+        metrics = m;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getTurnNumber() {
+        return turnNumber;
+    }
+
+    public int getLevelNumber() {
+        return levelNumber;
+    }
+
+    /**
+     * The accessors below expose live game state to code in this package that
+     * plays or inspects the game headless, such as agents and evaluators.
+     */
+    Level getCurrentLevel() {
+        return currentLevel;
+    }
+
+    TileGrid getLayout() {
+        return layout;
+    }
+
+    Player getPlayer() {
+        return player;
+    }
+
+    CustomerStore getCustomers() {
+        return customers;
     }
 
     /**
-     * Generates a new level. The method builds a 2D array of TileType values
+     * Generates a new level. The method builds a grid of TileType values
      * that will be used to draw level to the screen and to add a variety of
      * tiles into each level. Tiles can be floors, walls, tables, doors or food
-     * sources.
+     * sources. The level is taken from the pipeline if it was prepared in
+     * advance, and the following level is then prepared.
      *
-     * @return A 2D array filled with TileType values representing the level in
-     * the current game. The size of this array should use the width and height
-     * of the game level using the LEVEL_WIDTH and LEVEL_HEIGHT attributes.
+     * @return A TileGrid filled with TileType values representing the level in
+     * the current game. The size of this grid is the level size set with
+     * setLevelSize, LEVEL_WIDTH by LEVEL_HEIGHT by default.
      */
-    private TileType[][] generateLevel() {
-        currentLevel = new Level(LEVEL_WIDTH, LEVEL_HEIGHT, levelNumber, this);
+    private TileGrid generateLevel() {
+        Level prepared = pipeline.take(levelNumber);
+        if (prepared == null) {
+            prepared = new Level(levelWidth, levelHeight, levelNumber, this, random.split());
+        }
+        currentLevel = prepared;
+        //start on the level after this one while this one is played
+        GameRandom next = random.split();
+        nextLevelRandom = next.copy();
+        pipeline.prepare(levelWidth, levelHeight, levelNumber + 1, this, next);
         player = createPlayer();
         return currentLevel.getLayout();    //modfy to return the 2D array that you build in this method
     }
@@ -137,16 +393,16 @@ public class GameEngine {
      * Generates spawn points for the player and customers. The method processes
      * the level array and finds positions that are suitable for spawning, i.e.
      * empty tiles such as floors. Suitable positions should then be added to
-     * the ArrayList that can be retrieved as Point objects - Points are a
+     * the ArrayList that can be retrieved as GridPoint objects - Points are a
      * simple kind of object that contain an X and a Y co-ordinate stored using
      * the int primitive type.
      *
-     * @return An ArrayList containing Point objects representing suitable X and
-     * Y co-ordinates in the current level where the player or customers can be
-     * added into the game.
+     * @return An array of positions packed as y*width + x in the current level
+     * where customers can be added into the game.
+     * ~ packed ints rather than GridPoints so building a level makes no garbage per tile ~ JFarrow
      */
-    private ArrayList<Point> getSpawns() {
-        return currentLevel.getGenericSpawnLocs();
+    private int[] getSpawns() {
+        return currentLevel.getSpawnCells();
     }
 
     /**
@@ -173,32 +429,48 @@ public class GameEngine {
      * them from being added on top of walls, tables etc. The method then
      * creates customers by instantiating the Customer class, setting patience,
      * and then setting the X and Y position for the customer using the X and Y
-     * values from the Point object that was removed from the spawns ArrayList.
+     * values from the GridPoint object that was removed from the spawns ArrayList.
      * ~ I did it this way first because of the way I set up level generation ~ JFarrow
+     * ~ Now a partial Fisher-Yates shuffle over the packed spawn cells: each
+     * pick swaps a random unpicked cell to the front, so spawning costs the
+     * same per customer however many spawn points there are ~ JFarrow
      *
-     * @return An array of Customer objects representing the customers for the
-     * current level of the game
+     * @return A CustomerStore holding the customers for the current level of
+     * the game
      */
-    private Customer[] addCustomers() {
-       int len = spawnLocations.size();
-       Customer[] customerList = new Customer[len];
-       int count = currentLevel.getCustomerCount();
-       for(int i = 0; i<len;i++)
+    private CustomerStore addCustomers() {
+       int len = spawnLocations.length;
+       int count = Math.min(len, currentLevel.getCustomerCount());
+       CustomerStore customerList = new CustomerStore(levelWidth, levelHeight, count);
+       int[] cells = packSpawns(len);
+       //cells before i have been picked, cells from i on are still free
+       for(int i = 0; i < count; i++)
        {
-           if(count > 0)
-           {    
-                int index = currentLevel.getRandomInt(0, spawnLocations.size()-1);
-                Point loc = new Point(spawnLocations.get(index).x, spawnLocations.get(index).y);
-                spawnLocations.remove(index);
-                Customer c = new Customer(1,loc.x,loc.y,currentLevel.getRandomInt(0,3));
-                customerList[i] = c;
-                count -= 1;
-           }
+            int index = i + currentLevel.getRandomInt(0, len - 1 - i);
+            int cell = cells[index];
+            cells[index] = cells[i];
+            cells[i] = cell;
+            customerList.add(cell % levelWidth, cell / levelWidth, 1, currentLevel.getRandomInt(0,3));
        }
        
        return customerList;   
     }
 
+    /**
+     * Copies the spawn locations into spawnCells, growing it only when a level
+     * has more spawn locations than any before.
+     *
+     * @param len the number of spawn locations
+     * @return spawnCells, with the first len entries filled
+     */
+    private int[] packSpawns(int len) {
+        if (spawnCells.length < len) {
+            spawnCells = new int[len];
+        }
+        System.arraycopy(spawnLocations, 0, spawnCells, 0, len);
+        return spawnCells;
+    }
+
     /**
      * Creates a Player object in the game. The method instantiates the Player
      * class and assigns values for the energy and position.
@@ -208,7 +480,7 @@ public class GameEngine {
      * constructor in the Player class.
      *
      * The second version of this method should use the spawns ArrayList to
-     * select a suitable location to spawn the player and removes the Point from
+     * select a suitable location to spawn the player and removes the GridPoint from
      * the spawns ArrayList. This will prevent the Player from being added to
      * the game inside a wall, bank or breach for example.
      *
@@ -253,7 +525,7 @@ public class GameEngine {
         switch(dir)
             {
                 case 'U':
-                    if(player.collisionCheck(layout[player.getX()][player.getY()-1], null))
+                    if(player.collisionCheck(layout.get(player.getX(), player.getY()-1), null))
                     {
                          //passed obstacle collision check move up
                         dy = -1;
@@ -262,7 +534,7 @@ public class GameEngine {
                     }
                     break;
                 case 'D':
-                   if(player.collisionCheck(layout[player.getX()][player.getY()+1], null))
+                   if(player.collisionCheck(layout.get(player.getX(), player.getY()+1), null))
                     {
                          //passed obstacle collision check move down
                         dy = 1;
@@ -272,7 +544,7 @@ public class GameEngine {
                    break;
                 case 'L':
 
-                    if(player.collisionCheck(layout[player.getX()-1][player.getY()], null))
+                    if(player.collisionCheck(layout.get(player.getX()-1, player.getY()), null))
                     {
                         //passed obstacle collision check move left
                         dx = -1;
@@ -282,7 +554,7 @@ public class GameEngine {
                     break;
                 case 'R':
                     
-                    if(player.collisionCheck(layout[player.getX()+1][player.getY()], null))
+                    if(player.collisionCheck(layout.get(player.getX()+1, player.getY()), null))
                     {
                         //passed obstacle collision check move right
                         dx = 1;
@@ -292,17 +564,11 @@ public class GameEngine {
                     break;
             }
         
-        for(int i = 0; i < customers.length; i++)
+        int target = customers.slotAt(player.getX() + dx, player.getY() + dy);
+        if(target >= 0)
         {
-            if(customers[i] == null){continue;}
-            if(customers[i].getX() == player.getX()+ dx && customers[i].getY()== player.getY()+ dy)
-            {
-                
-                deliverFood(customers[i]);
-                return;
-                
-            }
-            
+            deliverFood(target);
+            return;
         }
         
         player.setPosition(player.getX()+dx, player.getY()+dy);
@@ -323,148 +589,136 @@ public class GameEngine {
      * the customer by calling the correct method on the Customer object
      * indicating that the player has "fed".
      *
-     * @param c The Customer object corresponding to the customer in the game
-     * that the player just attempted to move into the same tile as.
+     * @param c The slot of the customer in the game that the player just
+     * attempted to move into the same tile as.
      */
-    private void deliverFood(Customer c) {
+    private void deliverFood(int c) {
         if(player.getCarriedFoodType() == 0){return;}
-        if(c.getFoodWanted() == player.getCarriedFoodType() && !c.beenFed())
+        if(customers.getFoodWanted(c) == player.getCarriedFoodType() && !customers.isFed(c))
         {
             player.giveFood();
-            c.feed();
-            score+=c.getPatience();
-            System.out.println(score);
+            customers.feed(c);
+            score+=customers.getPatience(c);
+            if(metrics != null)
+            {
+                metrics.customerFed();
+            }
+            if(printScore)
+            {
+                System.out.println(score);
+            }
         }
 
     }
 
     /**
      * Moves a specific customer in the game. The method updates the X and Y
-     * attributes of the Customer object passed to the method, to set its new
-     * position.
+     * position of the customer in the store, to set its new position.
      *
-     * @param c The Customer that needs to be moved
+     * @param c The slot of the customer that needs to be moved
      */
-    private void moveCustomer(Customer c) {
+    private void moveCustomer(int c) {
         //YOUR CODE HERE
-        if(c == null || c.satDown()){return;}
+        if(customers.isSeated(c)){return;}
         
-        int[] loc = new int[2];
         int dir = 0;
         int dx = 0;
         int dy = 0;
-        int dirX = c.getX()+dx;
-        int dirY = c.getY()+dy;
+        int x = customers.getX(c);
+        int y = customers.getY(c);
+        int dirX = x+dx;
+        int dirY = y+dy;
         
-        if(!c.satDown())
+        if(!customers.isSeated(c))
         {
-            //find table locs
-            for(int i = 0; i < LEVEL_WIDTH; i++)
-            {
-                for(int j =0; j < LEVEL_HEIGHT; j++)
-                {
-                    if(layout[i][j] == TileType.TABLE)
-                    {
-                         //find other customers
-                        for(int k = 0; k < customers.length; k++)
-                        {
-                            //table has customer on x axis
-                            if(customers[k].getX() == i-1 || customers[k].getX() == i+1)
-                            {
-                                continue;
-                            }
-                            else
-                            {
-                                //found an empty table
-                                //grab location, break loop
-                                loc[0] = i;
-                                loc[1] = j;
-                                break;
-                                
-                            }
-                        }
-                    }
-                }
-            }
+            //take the seat if standing on a free one
+            if(trySitDown(c)){return;}
+            
+            //walk down the flow field towards the nearest free seat
+            dir = currentLevel.getFlowField().nextStep(x, y);
+            boolean wandering = dir < 0;
             
             //random movement
-            if((loc[0] == 0 && loc[1] == 0) && !c.satDown())
+            if(wandering)
             {
                 dir = currentLevel.getRandomInt(0,3);
+            }
 
+            switch(dir)
+            {
+                case 0:
+                   dx = -1;
+                   break;
+                case 1:
+                    dx = 1;
+                    break;
+                case 2:
+                    dy = -1;
+                    break;
+                case 3:
+                    dy = 1;
+                    break;
+            }
 
-                switch(dir)
-                {
-                    case 0:
-                       dx = -1;
-                       break;
-                    case 1:
-                        dx = 1;
-                        break;
-                    case 2:
-                        dy = -1;
-                        break;
-                    case 3:
-                        dy = 1;
-                        break;
-                }
-
-                dirX = c.getX()+dx;
-                dirY = c.getY()+dy;
-
-                if(c.checkCollision(layout[dirX][dirY], null))
-                {
-                    if((int)Math.hypot(dirX-player.getX(),  dirY-player.getY()) <= 3){return;}
+            dirX = x+dx;
+            dirY = y+dy;
 
-                    c.setPosition(dirX, dirY);
-                }
-            }
-            else
+            if(CustomerStore.canWalkOn(layout.get(dirX, dirY)))
             {
-                dirX = loc[0] - c.getX();
-                dirY = loc[1] - c.getY();
+                if(wandering && (int)Math.hypot(dirX-player.getX(),  dirY-player.getY()) <= 3){return;}
+                if((dirX == player.getX() && dirY == player.getY()) || customers.isOccupied(dirX, dirY)){return;}
+
+                customers.moveTo(c, dirX, dirY);
+                trySitDown(c);
             }
-                
-            
-           
         }
-        
-        
+    }
+    
+    /**
+     * Sits a customer down if they are standing on a free seat
+     * 
+     * @param c the customer's slot
+     * @return true if the customer sat down
+     */
+    private boolean trySitDown(int c) {
+        int seat = currentLevel.getSeats().getSeatAt(customers.getX(c), customers.getY(c));
+        if(seat >= 0 && currentLevel.getSeats().isFree(seat))
+        {
+            currentLevel.takeSeat(seat);
+            customers.sitDown(c, seat);
+            return true;
+        }
+        return false;
     }
 
     /**
-     * Moves all customers on the current level. This method iterates over all
-     * elements of the customers array (e.g. using a for loop) and checks if
-     * each one is null (using an if statement inside that for loop). For every
-     * element of the array that is NOT null, this method calls the moveCustomer
-     * method and passes it the current array element (i.e. the current customer
-     * object being used in the loop).
+     * Moves all customers on the current level. This method iterates over
+     * every slot of the customer store, which are all live customers, and
+     * calls the moveCustomer method for each one.
      */
     private void moveAllCustomers() {
-        for (Customer customer : customers) {
-           moveCustomer(customer);
+        for (int i = 0; i < customers.size(); i++) {
+           moveCustomer(i);
         }
     }
 
     /**
-     * Processes the customers array to find any Customer in the array that has
-     * been fed (i.e. given food by the player of the type they wanted). Any
-     * Customer in the array with a "fed" attribute value of true should be set
-     * to null; when drawing or moving customers the null elements in the
-     * customers array are skipped, essentially removing them from the game.
+     * Processes the customer store to find any customer that has been fed
+     * (i.e. given food by the player of the type they wanted) and removes them
+     * from the store, freeing their seat. The fed customers are found from the
+     * end of the store backwards, so moving the last customer into a removed
+     * slot never skips one.
      */
     private void cleanFedCustomers() 
     {
-        for(int i =0; i< customers.length; i++)
+        for(int i = customers.previousFed(customers.size()-1); i >= 0; i = customers.previousFed(i-1))
         {
-            if(customers[i] != null)
+            if(customers.isSeated(i))
             {
-                if(customers[i].beenFed())
-                {
-                    customers[i] = null;
-                    fedCustomers += 1;
-                }
+                currentLevel.freeSeat(customers.getSeat(i));
             }
+            customers.remove(i);
+            fedCustomers += 1;
         }
         
     }
@@ -496,11 +750,15 @@ public class GameEngine {
      * ArrayList and code in the getSpawns method.
      */
     
-     //probably don't need this because the brief is handled by level class on every instantiation
     private void nextLevel() {
+        if (metrics != null) {
+            metrics.levelCleared();
+        }
         levelNumber++;
+        fedCustomers = 0;
         layout = generateLevel();
-       
+        spawnLocations = getSpawns();
+        customers = addCustomers();
     }
 
     /**
@@ -512,7 +770,7 @@ public class GameEngine {
      * in a game level by choosing a position from the spawnLocations ArrayList,
      * removing the spawn position as it is used. The method sets the players
      * position in the level by calling its setPosition method with the x and y
-     * values of the Point taken from the spawnLocations ArrayList.
+     * values of the GridPoint taken from the spawnLocations ArrayList.
      */
     
     //probably don't need this as player always spawns by door but it was in the brief
@@ -568,20 +826,59 @@ public class GameEngine {
      * out.
      */
     public void doTurn() {
+        TurnMetrics m = metrics;
+        long turnStart = m != null ? m.startTurn() : 0;
         turnNumber++;
         if (turnNumber % 10 == 0) 
         {
+            long start = m != null ? System.nanoTime() : 0;
             cleanFedCustomers();
+            if (m != null) {
+                m.record(TurnMetrics.Phase.CLEAN_FED, start);
+            }
             if(allCustomersFed())
             {
                 clearLevel();
             }
         }
         if (turnNumber % 3 == 0) {
+            long start = m != null ? System.nanoTime() : 0;
             moveAllCustomers();
+            if (m != null) {
+                m.record(TurnMetrics.Phase.MOVE_CUSTOMERS, start);
+            }
             reduceCustomerPatience();
         }
         gui.updateDisplay(layout, player, customers);
+        if (m != null) {
+            m.endTurn(turnStart);
+        }
+    }
+
+    /**
+     * Plays a whole turn for one key press: moves the player if the key was a
+     * direction, then runs doTurn. The move is added to the replay if one is
+     * being recorded.
+     *
+     * @param dir U, D, L or R to move the player, any other char just passes
+     * the turn
+     */
+    public void playTurn(char dir) {
+        switch (dir) {
+            case 'U':
+            case 'D':
+            case 'L':
+            case 'R':
+                movePlayer(dir);
+                break;
+        }
+        doTurn();
+        if (recorder != null) {
+            recorder.record(dir);
+        }
+        if (autosave != null) {
+            autosave.capture(this);
+        }
     }
 
     /**
@@ -597,4 +894,89 @@ public class GameEngine {
         player = createPlayer();
         gui.updateDisplay(layout, player, customers);
     }
+
+    /**
+     * Carries on a game saved in a snapshot instead of starting a new one, and
+     * requests the GUI to show it.
+     *
+     * @param s a snapshot holding a saved game
+     */
+    public void resumeGame(GameSnapshot s) {
+        s.restore(this);
+        gui.updateDisplay(layout, player, customers);
+    }
+
+    /**
+     * Writes the whole state of a started game, see GameSnapshot.
+     *
+     * @param buf the buffer to write to
+     */
+    void writeState(ByteBuffer buf) {
+        buf.putLong(seed);
+        random.writeTo(buf);
+        nextLevelRandom.writeTo(buf);
+        buf.putInt(levelNumber).putInt(turnNumber).putInt(score).putInt(fedCustomers);
+        buf.put((byte) (proceduralLevels ? 1 : 0));
+        currentLevel.writeTo(buf);
+
+        buf.putInt(player.getX()).putInt(player.getY()).putInt(player.getStamina()).putInt(player.getCarriedFoodType());
+
+        buf.putInt(customers.size());
+        for (int i = 0; i < customers.size(); i++) {
+            buf.putInt(customers.getX(i)).putInt(customers.getY(i));
+            buf.putInt(customers.getMaxPatience(i)).putInt(customers.getPatience(i));
+            buf.putInt(customers.getFoodWanted(i)).put((byte) (customers.isFed(i) ? 1 : 0)).putInt(customers.getSeat(i));
+        }
+    }
+
+    /**
+     * Replaces the state of this engine with state written by writeState. The
+     * sink, pipeline, recorder and autosave are kept; the pipeline is set to
+     * build the level after the restored one.
+     *
+     * @param buf a buffer positioned at the saved state
+     */
+    void readState(ByteBuffer buf) {
+        seed = buf.getLong();
+        random = GameRandom.readFrom(buf);
+        nextLevelRandom = GameRandom.readFrom(buf);
+        levelNumber = buf.getInt();
+        turnNumber = buf.getInt();
+        score = buf.getInt();
+        fedCustomers = buf.getInt();
+        proceduralLevels = buf.get() != 0;
+
+        currentLevel = new Level(this, buf);
+        layout = currentLevel.getLayout();
+        levelWidth = layout.getWidth();
+        levelHeight = layout.getHeight();
+        spawnLocations = currentLevel.getSpawnCells();
+
+        player = new Player(levelNumber, buf.getInt(), buf.getInt());
+        player.changeStamina(buf.getInt() - player.getMaxStamina());
+        int food = buf.getInt();
+        if (food != 0) {
+            player.grabFood(food);
+        }
+
+        int count = buf.getInt();
+        customers = new CustomerStore(layout.getWidth(), layout.getHeight(), count);
+        for (int i = 0; i < count; i++) {
+            int x = buf.getInt();
+            int y = buf.getInt();
+            int maxPatience = buf.getInt();
+            int patience = buf.getInt();
+            int c = customers.add(x, y, maxPatience, buf.getInt());
+            customers.changePatience(c, patience - maxPatience);
+            if (buf.get() != 0) {
+                customers.feed(c);
+            }
+            int seat = buf.getInt();
+            if (seat >= 0) {
+                customers.sitDown(c, seat);
+            }
+        }
+
+        pipeline.prepare(levelWidth, levelHeight, levelNumber + 1, this, nextLevelRandom.copy());
+    }
 }
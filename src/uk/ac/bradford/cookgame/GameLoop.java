@@ -0,0 +1,108 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the game on its own thread, so the Swing event thread only queues key
+ * presses and paints. Key presses go into a lock-free queue; the loop thread
+ * plays one turn for each in order and the engine's sink publishes a frame
+ * after each turn, which the GameGUI shows on the event thread. A slow turn
+ * then delays the game but never input handling or painting.
+ *
+ * Once started, the engine must only be used from the loop thread.
+ *
+ * @author JFarrow
+ */
+public class GameLoop implements Runnable
+{
+    private final GameEngine engine;
+
+    /**
+     * key presses waiting to be played, as the chars taken by GameEngine.playTurn
+     */
+    private final ConcurrentLinkedQueue<Character> input = new ConcurrentLinkedQueue<Character>();
+
+    private volatile Thread thread;
+    private volatile boolean running;
+
+    /**
+     * @param e the engine to run, with its game already started or resumed
+     */
+    public GameLoop(GameEngine e)
+    {
+        engine = e;
+    }
+
+    /**
+     * starts the loop thread
+     */
+    public synchronized void start()
+    {
+        if(thread != null){return;}
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * stops the loop thread once it has played the turn it is on, queued key presses are dropped
+     */
+    public void stop()
+    {
+        running = false;
+        Thread t = thread;
+        if(t != null)
+        {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * Queues a key press to be played as a turn. Never blocks, so it is safe
+     * to call on the event thread.
+     * @param dir U, D, L or R to move the player, any other char just passes the turn
+     */
+    public void submit(char dir)
+    {
+        input.offer(dir);   //the Character is cached for chars below 128, but the queue still allocates a node
+        Thread t = thread;
+        if(t != null)
+        {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * @return the number of key presses waiting to be played
+     */
+    public int getQueuedInput()
+    {
+        return input.size();
+    }
+
+    /**
+     * Plays queued key presses until stopped, parking while there are none.
+     */
+    @Override
+    public void run()
+    {
+        while(running)
+        {
+            Character dir;
+            while(running && (dir = input.poll()) != null)
+            {
+                engine.playTurn(dir);
+            }
+            if(running && input.isEmpty())
+            {
+                LockSupport.park(this);     //submit and stop unpark the thread
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The random number source for one game session. Uses the same SplitMix64
+ * algorithm as java.util.SplittableRandom: it is not shared between threads,
+ * so parallel sessions never contend on it, and a session started from the
+ * same seed makes the same choices every time. split() hands out independent
+ * generators, e.g. one per Level.
+ *
+ * @author JFarrow
+ */
+public final class GameRandom 
+{
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    
+    private long seed;
+    private final long gamma;
+    
+    /**
+     * @param seed the starting seed, the same seed always gives the same sequence
+     */
+    public GameRandom(long seed)
+    {
+        this(seed, GOLDEN_GAMMA);
+    }
+    
+    private GameRandom(long seed, long gamma)
+    {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+    
+    /**
+     * @return a seed that differs between calls, for games that do not need to be repeatable
+     */
+    public static long randomSeed()
+    {
+        return mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime());
+    }
+    
+    private long nextSeed()
+    {
+        return seed += gamma;
+    }
+    
+    public long nextLong()
+    {
+        return mix64(nextSeed());
+    }
+    
+    public int nextInt()
+    {
+        return mix32(nextSeed());
+    }
+    
+    /**
+     * @param bound the upper bound (exclusive), must be positive
+     * @return a uniformly distributed int between 0 (inclusive) and bound (exclusive)
+     */
+    public int nextInt(int bound)
+    {
+        if(bound <= 0)
+        {
+            throw new IllegalArgumentException("bound must be positive: " + bound);
+        }
+        int r = mix32(nextSeed());
+        int m = bound - 1;
+        if((bound & m) == 0)
+        {
+            //power of two
+            return r & m;
+        }
+        //reject values from the uneven top end of the range
+        for(int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(nextSeed()) >>> 1)
+        {
+        }
+        return r;
+    }
+    
+    /**
+     * @param origin the smallest value returned
+     * @param bound the upper bound (exclusive), must be greater than origin
+     * @return a uniformly distributed int between origin (inclusive) and bound (exclusive)
+     */
+    public int nextInt(int origin, int bound)
+    {
+        if(origin >= bound)
+        {
+            throw new IllegalArgumentException("bound must be greater than origin: " + origin + ", " + bound);
+        }
+        int n = bound - origin;
+        if(n > 0)
+        {
+            return nextInt(n) + origin;
+        }
+        //range wider than Integer.MAX_VALUE
+        int r;
+        do
+        {
+            r = nextInt();
+        } while(r < origin || r >= bound);
+        return r;
+    }
+    
+    /**
+     * @return a uniformly distributed double between 0 (inclusive) and 1 (exclusive)
+     */
+    public double nextDouble()
+    {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+    
+    /**
+     * @return a new generator whose sequence is independent of this one
+     */
+    public GameRandom split()
+    {
+        return new GameRandom(nextLong(), mixGamma(nextSeed()));
+    }
+    
+    /**
+     * @return a generator that continues from the same point as this one
+     */
+    public GameRandom copy()
+    {
+        return new GameRandom(seed, gamma);
+    }
+    
+    /**
+     * writes the generator state, 16 bytes, for a GameSnapshot
+     * @param buf the buffer to write to
+     */
+    void writeTo(ByteBuffer buf)
+    {
+        buf.putLong(seed).putLong(gamma);
+    }
+    
+    /**
+     * @param buf a buffer positioned at state written by writeTo
+     * @return a generator that continues from where the saved one was
+     */
+    static GameRandom readFrom(ByteBuffer buf)
+    {
+        long s = buf.getLong();
+        return new GameRandom(s, buf.getLong());
+    }
+    
+    private static long mix64(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+    
+    private static int mix32(long z)
+    {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+    
+    private static long mixGamma(long z)
+    {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One headless game hosted by a SessionHost. Like a GameLoop, key presses go
+ * into the session's own lock-free queue and are played in order, but instead
+ * of a thread each the session borrows a thread of the host's shared pool
+ * only while it has input waiting. At most one pool thread runs a session at
+ * a time, so the engine needs no locking, and the handover of the scheduled
+ * flag makes each run see the state left by the one before.
+ *
+ * A session plays at most BATCH turns before giving its thread back, so a
+ * busy session cannot hold up the others. If a turn throws, the session is
+ * closed and the exception kept for getFailure, as the engine may have been
+ * left half way through the turn.
+ *
+ * @author JFarrow
+ */
+public class GameSession implements Runnable
+{
+    /**
+     * the most turns played each time the session is given a thread
+     */
+    static final int BATCH = 64;
+
+    private final long id;
+    private final GameEngine engine;
+    private final Executor executor;
+
+    /**
+     * key presses waiting to be played, as the chars taken by GameEngine.playTurn
+     */
+    private final ConcurrentLinkedQueue<Character> input = new ConcurrentLinkedQueue<Character>();
+
+    /**
+     * true while the session is queued on or running in the pool
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private volatile boolean closed;
+    private volatile RuntimeException failure;
+
+    //copied out of the engine after each run, so other threads can read them
+    private volatile long turns;
+    private volatile int score;
+    private volatile int levelNumber;
+
+    /**
+     * @param id the id given by the host
+     * @param engine the engine to run, with its game already started
+     * @param executor the pool the session runs on
+     */
+    GameSession(long id, GameEngine engine, Executor executor)
+    {
+        this.id = id;
+        this.engine = engine;
+        this.executor = executor;
+        levelNumber = engine.getLevelNumber();
+    }
+
+    /**
+     * Queues a key press to be played as a turn. Never blocks, so it can be
+     * called from any thread, e.g. a network handler.
+     * @param dir U, D, L or R to move the player, any other char just passes the turn
+     * @return false if the session has been closed and the key press was dropped
+     */
+    public boolean submit(char dir)
+    {
+        if(closed){return false;}
+        input.offer(dir);   //the Character is cached for chars below 128, but the queue still allocates a node
+        schedule();
+        return !closed;
+    }
+
+    /**
+     * hands the session to the pool unless it is already waiting there or
+     * running, closing it if the pool has been shut down
+     */
+    private void schedule()
+    {
+        if(scheduled.compareAndSet(false, true))
+        {
+            try
+            {
+                executor.execute(this);
+            }
+            catch(RejectedExecutionException e)
+            {
+                //the host shut down between the closed check and here
+                scheduled.set(false);
+                close();
+            }
+        }
+    }
+
+    /**
+     * Plays up to BATCH queued key presses on a pool thread, then gives the
+     * thread back, scheduling the session again if more input arrived.
+     */
+    @Override
+    public void run()
+    {
+        int played = 0;
+        boolean finished = false;
+        try
+        {
+            Character dir;
+            while(!closed && played < BATCH && (dir = input.poll()) != null)
+            {
+                engine.playTurn(dir);
+                played++;
+            }
+            finished = true;
+        }
+        catch(RuntimeException e)
+        {
+            failure = e;
+        }
+        finally
+        {
+            if(!finished)
+            {
+                close();
+            }
+            turns += played;
+            score = engine.getScore();
+            levelNumber = engine.getLevelNumber();
+            scheduled.set(false);
+            //input offered after the poll above but before the flag was cleared
+            //found the session still scheduled, so it must be picked up here
+            if(!closed && !input.isEmpty())
+            {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * Stops the session, queued key presses are dropped
+     */
+    void close()
+    {
+        closed = true;
+        input.clear();
+    }
+
+    public long getId()
+    {
+        return id;
+    }
+
+    public boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * @return the exception thrown by a turn that closed the session, null if
+     * no turn has failed
+     */
+    public RuntimeException getFailure()
+    {
+        return failure;
+    }
+
+    /**
+     * @return the number of turns played so far
+     */
+    public long getTurns()
+    {
+        return turns;
+    }
+
+    /**
+     * @return the score after the last turn played
+     */
+    public int getScore()
+    {
+        return score;
+    }
+
+    /**
+     * @return the level number after the last turn played
+     */
+    public int getLevelNumber()
+    {
+        return levelNumber;
+    }
+
+    /**
+     * @return the number of key presses waiting to be played
+     */
+    public int getQueuedInput()
+    {
+        return input.size();
+    }
+
+    /**
+     * @return the engine, which must not be used while the session could be
+     * running, i.e. while it has queued input
+     */
+    GameEngine getEngine()
+    {
+        return engine;
+    }
+}
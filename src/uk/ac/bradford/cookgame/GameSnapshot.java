@@ -0,0 +1,176 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The complete state of a game held in one preallocated ByteBuffer, so a game
+ * can be saved every turn or copied into another engine, e.g. by a bot that
+ * tries out moves. Each class writes its own fields straight into the buffer
+ * with put calls and bulk copies of its arrays; nothing is allocated to save,
+ * and restoring only allocates the objects of the restored level.
+ *
+ * The buffer is either direct memory, or a file mapped into memory so that
+ * every save goes to disk without a write call. The magic number is cleared
+ * while a save is in progress and written last, so a save cut short is never
+ * mistaken for a valid one.
+ *
+ * @author JFarrow
+ */
+public final class GameSnapshot
+{
+    /**
+     * "BDSS", marks a snapshot
+     */
+    public static final int MAGIC = 0x42445353;
+    public static final int VERSION = 5;
+
+    /**
+     * magic, version and the length of the saved state
+     */
+    private static final int HEADER_SIZE = 12;
+
+    private final ByteBuffer buffer;
+
+    private GameSnapshot(ByteBuffer buffer)
+    {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @param w level width in tiles
+     * @param h level height in tiles
+     * @return the size in bytes of the largest possible snapshot of a game on
+     * levels of this size
+     * @throws IllegalArgumentException if that is more than one buffer can
+     * hold, which is levels of more than about 39 million tiles
+     */
+    public static int capacity(int w, int h)
+    {
+        long tiles = (long) w * h;
+        //every tile takes more than a byte, so more tiles than this never fit
+        if(tiles < Integer.MAX_VALUE)
+        {
+            long engine = 8 + 16 + 16 + 16 + 16 + 1;
+            //fixed fields, tiles, spawn points, tables and seats, flow field
+            long level = 44 + tiles + (4 + tiles * 4) + (4 + tiles * 8) + (4 + tiles * 9) + tiles * 8;
+            //any tile could hold a customer
+            long customers = 4 + tiles * 25;
+            long size = HEADER_SIZE + engine + level + customers;
+            if(size <= Integer.MAX_VALUE)
+            {
+                return (int) size;
+            }
+        }
+        throw new IllegalArgumentException("a snapshot of " + w + "x" + h + " levels needs more than the "
+                + Integer.MAX_VALUE + " bytes a buffer can hold");
+    }
+
+    /**
+     * @return an empty snapshot in direct memory, big enough for games on the standard level size
+     */
+    public static GameSnapshot allocate()
+    {
+        return allocate(GameEngine.LEVEL_WIDTH, GameEngine.LEVEL_HEIGHT);
+    }
+
+    /**
+     * @param w level width in tiles
+     * @param h level height in tiles
+     * @return an empty snapshot in direct memory, big enough for games on levels of this size
+     */
+    public static GameSnapshot allocate(int w, int h)
+    {
+        return new GameSnapshot(ByteBuffer.allocateDirect(capacity(w, h)));
+    }
+
+    /**
+     * Maps a file into memory as a snapshot for games on the standard level
+     * size, creating it if needed.
+     * @param file the file to map
+     * @return the snapshot backed by the file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static GameSnapshot mapped(Path file) throws IOException
+    {
+        return mapped(file, GameEngine.LEVEL_WIDTH, GameEngine.LEVEL_HEIGHT);
+    }
+
+    /**
+     * Maps a file into memory as a snapshot, creating it if needed. A game
+     * saved to the file before is kept and can be restored, whatever level
+     * size it was saved with.
+     * @param file the file to map
+     * @param w level width in tiles
+     * @param h level height in tiles
+     * @return the snapshot backed by the file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static GameSnapshot mapped(Path file, int w, int h) throws IOException
+    {
+        try(FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE))
+        {
+            //a file saved from bigger levels is mapped whole so it can still be restored
+            long size = Math.max(capacity(w, h), ch.size());
+            return new GameSnapshot(ch.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    /**
+     * Saves the state of a game, replacing whatever this snapshot held
+     * @param e an engine with a game started
+     */
+    public void capture(GameEngine e)
+    {
+        if(e.getCurrentLevel() == null)
+        {
+            throw new IllegalStateException("the game has not been started");
+        }
+        buffer.putInt(0, 0);
+        buffer.position(HEADER_SIZE);
+        e.writeState(buffer);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, buffer.position() - HEADER_SIZE);
+        buffer.putInt(0, MAGIC);
+    }
+
+    /**
+     * @return true if this snapshot holds a complete saved game
+     */
+    public boolean isValid()
+    {
+        return buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION;
+    }
+
+    /**
+     * Replaces the state of an engine with the saved game. The engine keeps
+     * its own sink, level pipeline, replay recorder and autosave.
+     * @param e the engine to restore into, does not need to have been started
+     */
+    public void restore(GameEngine e)
+    {
+        if(!isValid())
+        {
+            throw new IllegalStateException("the snapshot does not hold a saved game");
+        }
+        buffer.position(HEADER_SIZE);
+        e.readState(buffer);
+    }
+
+    /**
+     * @return the number of bytes the saved game takes up, 0 if there is none
+     */
+    public int size()
+    {
+        return isValid() ? HEADER_SIZE + buffer.getInt(8) : 0;
+    }
+}
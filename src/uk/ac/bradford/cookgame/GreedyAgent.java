@@ -0,0 +1,139 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+
+/**
+ * A scripted player for headless runs. Each turn it takes the shortest path
+ * either to a food tile that some hungry customer wants or, when carrying
+ * wanted food, to a customer who wants it. One agent plays one game at a time
+ * and reuses its search arrays between turns.
+ *
+ * @author JFarrow
+ */
+public class GreedyAgent 
+{
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {-1, 1, 0, 0};
+    private static final char[] DIRS = {'U', 'D', 'L', 'R'};
+    
+    private int width;
+    private int height;
+    
+    //indexed [y*width + x], stamps avoid clearing the arrays every turn
+    private int[] visited = new int[0];
+    private int[] goal = new int[0];
+    private int[] blocked = new int[0];
+    private byte[] firstStep = new byte[0];
+    private int[] queue = new int[0];
+    private int stamp;
+    
+    /**
+     * Picks the move for this turn
+     * @param e the engine to play
+     * @return U, D, L or R, or a space to pass the turn when there is nothing to do
+     */
+    public char nextMove(GameEngine e)
+    {
+        Player p = e.getPlayer();
+        CustomerStore customers = e.getCustomers();
+        TileGrid tiles = e.getLayout();
+        if(p == null || customers == null || tiles == null){return ' ';}
+        resize(tiles.getWidth(), tiles.getHeight());
+        stamp++;
+        
+        //which food types hungry customers still want, as bits 1 to 3
+        int wanted = 0;
+        for(int c = 0; c < customers.size(); c++)
+        {
+            blocked[customers.getY(c) * width + customers.getX(c)] = stamp;
+            if(!customers.isFed(c))
+            {
+                wanted |= 1 << customers.getFoodWanted(c);
+            }
+        }
+        if(wanted == 0){return ' ';}
+        
+        int carried = p.getCarriedFoodType();
+        if(carried != 0 && (wanted & (1 << carried)) != 0)
+        {
+            for(int c = 0; c < customers.size(); c++)
+            {
+                if(!customers.isFed(c) && customers.getFoodWanted(c) == carried)
+                {
+                    goal[customers.getY(c) * width + customers.getX(c)] = stamp;
+                }
+            }
+        }
+        else
+        {
+            for(int y = 0; y < height; y++)
+            {
+                for(int x = 0; x < width; x++)
+                {
+                    int food = TileFlags.foodId(tiles.flags(x, y));
+                    if(food != 0 && (wanted & (1 << food)) != 0)
+                    {
+                        goal[y * width + x] = stamp;
+                    }
+                }
+            }
+        }
+        return search(tiles, p.getX(), p.getY());
+    }
+    
+    /**
+     * breadth first search from the player to the nearest goal tile
+     */
+    private char search(TileGrid tiles, int px, int py)
+    {
+        int start = py * width + px;
+        visited[start] = stamp;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while(head < tail)
+        {
+            int cell = queue[head++];
+            int x = cell % width;
+            int y = cell / width;
+            for(int d = 0; d < 4; d++)
+            {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if(!tiles.inBounds(nx, ny)){continue;}
+                int n = ny * width + nx;
+                if(visited[n] == stamp){continue;}
+                visited[n] = stamp;
+                int step = cell == start ? d : firstStep[cell];
+                if(goal[n] == stamp)
+                {
+                    return DIRS[step];
+                }
+                if(!TileFlags.blocksMovement(tiles.flags(nx, ny)) && blocked[n] != stamp)
+                {
+                    firstStep[n] = (byte) step;
+                    queue[tail++] = n;
+                }
+            }
+        }
+        return ' ';
+    }
+    
+    private void resize(int w, int h)
+    {
+        width = w;
+        height = h;
+        if(visited.length < w * h)
+        {
+            visited = new int[w * h];
+            goal = new int[w * h];
+            blocked = new int[w * h];
+            firstStep = new byte[w * h];
+            queue = new int[w * h];
+            stamp = 0;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+/**
+ * An immutable tile co-ordinate. Used in place of java.awt.Point so that the
+ * engine and level code do not pull in any AWT classes when run headless.
+ *
+ * @author JFarrow
+ */
+public final class GridPoint 
+{
+    public final int x;
+    public final int y;
+    
+    public GridPoint(int x, int y)
+    {
+        this.x = x;
+        this.y = y;
+    }
+    
+    public int getX()
+    {
+        return x;
+    }
+    
+    public int getY()
+    {
+        return y;
+    }
+}
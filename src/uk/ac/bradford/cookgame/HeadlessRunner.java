@@ -0,0 +1,114 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+/**
+ * Runs a GameEngine without a GameGUI. Turns are stepped directly instead of
+ * waiting for key presses, so the simulation runs as fast as the CPU allows.
+ * Nothing in here touches Swing or AWT.
+ *
+ * @author JFarrow
+ */
+public class HeadlessRunner 
+{
+    private static final char[] DIRECTIONS = {'U', 'D', 'L', 'R'};
+    
+    private final GameEngine engine;
+    private long turns;
+    
+    /**
+     * Creates and starts a headless game that discards all display updates
+     */
+    public HeadlessRunner()
+    {
+        this(NullRenderSink.INSTANCE);
+    }
+    
+    /**
+     * Creates and starts a headless game
+     * @param sink where display updates go, e.g. a SnapshotRenderSink
+     */
+    public HeadlessRunner(RenderSink sink)
+    {
+        this(sink, GameRandom.randomSeed());
+    }
+    
+    /**
+     * Creates and starts a headless game that can be repeated from its seed
+     * @param sink where display updates go, e.g. a SnapshotRenderSink
+     * @param seed the seed for the game session
+     */
+    public HeadlessRunner(RenderSink sink, long seed)
+    {
+        this(sink, seed, GameEngine.LEVEL_WIDTH, GameEngine.LEVEL_HEIGHT);
+    }
+    
+    /**
+     * Creates and starts a headless game on levels of the given size
+     * @param sink where display updates go, e.g. a SnapshotRenderSink
+     * @param seed the seed for the game session
+     * @param width the level width in tiles, at least GameEngine.LEVEL_WIDTH
+     * @param height the level height in tiles, at least GameEngine.LEVEL_HEIGHT
+     */
+    public HeadlessRunner(RenderSink sink, long seed, int width, int height)
+    {
+        engine = new GameEngine(sink, seed);
+        engine.setLevelSize(width, height);
+        engine.startGame();
+    }
+    
+    /**
+     * Plays a single turn the same way the InputHandler does for a key press
+     * @param dir U, D, L or R to move the player, any other char just passes the turn
+     */
+    public void step(char dir)
+    {
+        engine.playTurn(dir);
+        turns++;
+    }
+    
+    /**
+     * Plays a number of turns in a fixed U, D, L, R cycle
+     * @param count the number of turns to play
+     */
+    public void run(long count)
+    {
+        for(long i = 0; i < count; i++)
+        {
+            step(DIRECTIONS[(int) (turns & 3)]);
+        }
+    }
+    
+    public GameEngine getEngine()
+    {
+        return engine;
+    }
+    
+    /**
+     * @return the number of turns stepped by this runner
+     */
+    public long getTurns()
+    {
+        return turns;
+    }
+    
+    /**
+     * Runs a headless game and prints the turn rate.
+     * @param args optional number of turns to run, default 1000000, then an
+     * optional seed, then an optional level width and height
+     */
+    public static void main(String[] args)
+    {
+        long count = args.length > 0 ? Long.parseLong(args[0]) : 1000000L;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : GameRandom.randomSeed();
+        int width = args.length > 3 ? Integer.parseInt(args[2]) : GameEngine.LEVEL_WIDTH;
+        int height = args.length > 3 ? Integer.parseInt(args[3]) : GameEngine.LEVEL_HEIGHT;
+        HeadlessRunner runner = new HeadlessRunner(NullRenderSink.INSTANCE, seed, width, height);
+        long start = System.nanoTime();
+        runner.run(count);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%d turns in %.3f s (%.0f turns/s)%n", count, elapsed / 1e9, count / (elapsed / 1e9));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of non-negative longs, such as timings in nanoseconds, in a fixed
+ * set of buckets: 8 buckets for every power of two, so a percentile is within
+ * 12.5% of the true value. Recording is an array increment and never
+ * allocates.
+ * 
+ * A histogram has one writing thread. Other threads, such as JMX, read it
+ * without locking, so what they see may be a few values out of date.
+ *
+ * @author JFarrow
+ */
+public class Histogram implements HistogramMBean
+{
+    /**
+     * bits of each value kept below its highest set bit
+     */
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    
+    private final long[] buckets = new long[64 * SUB_BUCKETS];
+    private volatile long count;
+    private long total;
+    private long max;
+    
+    /**
+     * Adds a value, negative values count as 0
+     * @param value the value to add
+     */
+    public void record(long value)
+    {
+        if(value < 0)
+        {
+            value = 0;
+        }
+        buckets[bucketOf(value)]++;
+        total += value;
+        if(value > max)
+        {
+            max = value;
+        }
+        count++;
+    }
+    
+    private static int bucketOf(long value)
+    {
+        if(value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int top = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (top - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (top - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+    
+    /**
+     * @return the smallest value that falls in a bucket
+     */
+    private static long lowestIn(int bucket)
+    {
+        if(bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+        int top = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return (1L << top) | (sub << (top - SUB_BITS));
+    }
+    
+    /**
+     * @param fraction between 0 and 1, e.g. 0.99
+     * @return the value that this fraction of recorded values are at or below,
+     * as the lowest value of its bucket, capped at the max
+     */
+    public long getPercentile(double fraction)
+    {
+        long n = count;
+        if(n == 0){return 0;}
+        long rank = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for(int b = 0; b < buckets.length; b++)
+        {
+            seen += buckets[b];
+            if(seen >= rank)
+            {
+                return Math.min(lowestIn(b), max);
+            }
+        }
+        return max;
+    }
+    
+    @Override
+    public long getCount()
+    {
+        return count;
+    }
+    
+    @Override
+    public double getMean()
+    {
+        long n = count;
+        return n == 0 ? 0 : (double) total / n;
+    }
+    
+    @Override
+    public long getP50()
+    {
+        return getPercentile(0.5);
+    }
+    
+    @Override
+    public long getP99()
+    {
+        return getPercentile(0.99);
+    }
+    
+    @Override
+    public long getMax()
+    {
+        return max;
+    }
+    
+    /**
+     * empties the histogram, values being recorded at the same time may be lost
+     */
+    @Override
+    public void reset()
+    {
+        count = 0;
+        Arrays.fill(buckets, 0);
+        total = 0;
+        max = 0;
+    }
+}
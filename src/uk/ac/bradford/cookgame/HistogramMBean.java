@@ -0,0 +1,26 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+/**
+ * JMX view of a Histogram. Values are in the unit the histogram records,
+ * nanoseconds for timings and bytes for allocation.
+ *
+ * @author JFarrow
+ */
+public interface HistogramMBean 
+{
+    long getCount();
+    
+    double getMean();
+    
+    long getP50();
+    
+    long getP99();
+    
+    long getMax();
+    
+    void reset();
+}
@@ -14,6 +14,7 @@ import java.awt.event.KeyListener;
 public class InputHandler implements KeyListener {
 
     GameEngine engine;      //GameEngine that this class calls methods from
+    GameLoop loop;          //queues turns for the loop thread instead, if set
 
     /**
      * Constructor that forms a connection between a GameInputHandler object and
@@ -27,6 +28,16 @@ public class InputHandler implements KeyListener {
         engine = eng;
     }
 
+    /**
+     * Constructor that passes key presses to a GameLoop, which plays the turns
+     * on its own thread instead of the thread handling keyboard events.
+     *
+     * @param l The GameLoop that key presses are queued on
+     */
+    public InputHandler(GameLoop l) {
+        loop = l;
+    }
+
     /**
      * Unused method
      *
@@ -38,29 +49,34 @@ public class InputHandler implements KeyListener {
 
     /**
      * Method to handle key presses captured by the GameGUI. The method calls
-     * the game engine doTurn method to process a game turn for ANY key press,
-     * but if the up, down, left or right arrow keys are pressed it also calls a
-     * method in the engine to update the game by moving the player.
+     * the game engine playTurn method to process a game turn for ANY key press,
+     * and if the up, down, left or right arrow keys are pressed it passes the
+     * direction so the engine also moves the player.
      *
      * @param e A KeyEvent object generated when a keyboard key is pressed
      */
     @Override
     public void keyPressed(KeyEvent e) {
+        char dir = ' ';
         switch (e.getKeyCode()) {
             case KeyEvent.VK_LEFT:
-                engine.movePlayer('L');
+                dir = 'L';
                 break;  //handle left arrow key
             case KeyEvent.VK_RIGHT:
-                engine.movePlayer('R');
+                dir = 'R';
                 break;//handle right arrow
             case KeyEvent.VK_UP:
-                engine.movePlayer('U');
+                dir = 'U';
                 break;      //handle up arrow
             case KeyEvent.VK_DOWN:
-                engine.movePlayer('D');
+                dir = 'D';
                 break;  //handle down arrow
         }
-        engine.doTurn();    //any key press will result in this method being called
+        if (loop != null) {
+            loop.submit(dir);   //played on the loop thread
+        } else {
+            engine.playTurn(dir);    //any key press will result in this method being called
+        }
     }
 
     /**
@@ -0,0 +1,64 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of ints in a plain int[], for building lists of packed
+ * tile positions without boxing them. clear() keeps the array, so a list
+ * reused from one level build to the next stops allocating once it has grown
+ * to the biggest level it has seen.
+ *
+ * @author JFarrow
+ */
+final class IntList
+{
+    private int[] values;
+    private int size;
+
+    /**
+     * @param capacity the number of values to make room for up front
+     */
+    IntList(int capacity)
+    {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    void add(int v)
+    {
+        if(size == values.length)
+        {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = v;
+    }
+
+    int get(int i)
+    {
+        return values[i];
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * empties the list, keeping its array
+     */
+    void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * @return a new array holding just the values in the list
+     */
+    int[] toArray()
+    {
+        return Arrays.copyOf(values, size);
+    }
+}
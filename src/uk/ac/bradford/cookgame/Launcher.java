@@ -1,6 +1,10 @@
 package uk.ac.bradford.cookgame;
 
 import java.awt.EventQueue;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import javax.management.JMException;
 
 /**
  * This class is the entry point for the project, containing the main method
@@ -12,6 +16,13 @@ import java.awt.EventQueue;
 public class Launcher {
 
     public static void main(String[] args) {
+        final Path replayFile = pathOption(args, "--record");
+        final Path saveFile = pathOption(args, "--autosave");
+        final boolean active = flag(args, "--active");
+        final int frameCap = intOption(args, "--fps", 60);
+        final int width = intOption(args, "--width", GameEngine.LEVEL_WIDTH);
+        final int height = intOption(args, "--height", GameEngine.LEVEL_HEIGHT);
+        final boolean procedural = flag(args, "--procedural");
         EventQueue.invokeLater(new Runnable() {
 
             /**
@@ -21,14 +32,105 @@ public class Launcher {
              */
             @Override
             public void run() {
-                GameGUI gui = new GameGUI();            //create GUI
+                GameGUI gui = new GameGUI(active, frameCap);   //create GUI
                 gui.setVisible(true);                   //display GUI
                 GameEngine eng = new GameEngine(gui);   //create engine
-                InputHandler i = new InputHandler(eng); //create input handler
+                eng.setLevelPipeline(LevelPipeline.background());   //build upcoming levels off the EDT
+                eng.setLevelSize(width, height);        //bigger levels scroll with the player
+                eng.setProceduralLevels(procedural);    //generated maps instead of the templates
+                GameSnapshot save = saveFile != null ? openSave(saveFile, width, height) : null;
+                boolean resume = save != null && save.isValid();
+                if (replayFile != null && resume) {
+                    System.out.println("A resumed game cannot be recorded, not recording");
+                } else if (replayFile != null) {
+                    record(eng, replayFile);            //save every turn to a replay file
+                }
+                if (resume) {
+                    eng.resumeGame(save);               //carries on the saved game
+                } else {
+                    eng.startGame();                    //starts the game
+                }
+                eng.setAutosave(save);                  //saves the game every turn
+                TurnMetrics metrics = new TurnMetrics(); //timings to look at over JMX
+                try {
+                    metrics.register("game");
+                } catch (JMException e) {
+                    System.out.println("Exception registering metrics: " + e.getMessage());
+                }
+                eng.setMetrics(metrics);
+                gui.setMetrics(metrics);
+                GameLoop loop = new GameLoop(eng);      //plays turns off the EDT from now on
+                InputHandler i = new InputHandler(loop); //create input handler
                 gui.registerKeyHandler(i);              //registers handler with GUI
-                eng.startGame();                        //starts the game
+                loop.start();
             }
         });
     }
 
+    /**
+     * @return the value following the named option in the arguments, or null
+     * if the option was not given
+     */
+    private static String option(String[] args, String name) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    private static int intOption(String[] args, String name, int defaultValue) {
+        String value = option(args, name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private static Path pathOption(String[] args, String name) {
+        String value = option(args, name);
+        return value != null ? Paths.get(value) : null;
+    }
+
+    /**
+     * @return true if the named flag is one of the arguments
+     */
+    private static boolean flag(String[] args, String name) {
+        for (String a : args) {
+            if (a.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Opens the autosave file, which holds the saved game if there is one.
+     */
+    private static GameSnapshot openSave(Path file, int width, int height) {
+        try {
+            return GameSnapshot.mapped(file, width, height);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Exception opening autosave: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Records the game to a replay file, which is closed when the program
+     * exits.
+     */
+    private static void record(GameEngine eng, Path file) {
+        try {
+            final ReplayRecorder recorder = ReplayRecorder.create(file, eng);
+            eng.setReplayRecorder(recorder);
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    recorder.close();
+                }
+            }));
+        } catch (IOException e) {
+            System.out.println("Exception creating replay: " + e.getMessage());
+        }
+    }
+
 }
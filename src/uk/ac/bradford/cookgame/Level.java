@@ -4,8 +4,7 @@
  */
 package uk.ac.bradford.cookgame;
 
-import java.awt.Point;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import uk.ac.bradford.cookgame.GameEngine.TileType;
 
 /**
@@ -14,6 +13,11 @@ import uk.ac.bradford.cookgame.GameEngine.TileType;
  */
 public class Level 
 {
+    /**
+     * the map index of levels made by a ProceduralMap instead of a Tilemap template
+     */
+    public static final int PROCEDURAL = -1;
+    
     private final int _playWidth;
     private final int _playHeight;
     private int currentLevelIndex;
@@ -21,17 +25,87 @@ public class Level
     private final GameEngine gEngine;
     private Player player;
     private final double _difficulty;
-    private ArrayList<Point> _spawnLocs;
-    private Point _playerSpawnLoc;
+    private int[] _spawnCells;      //customer spawn points, packed as y*width + x
+    private GridPoint _playerSpawnLoc;
     private int _mapIndex;
-    private Tilemap tilemaps;
-    private TileType[][] layout;
+    private TileGrid layout;
     private int customerCount;
+    private final GameRandom random;
+    private SeatIndex seats;
+    private FlowField flowField;
+    private LevelBitboard board;
+    
+    /**
+     * the 12 tiles round a table and its two seats, clockwise from the top
+     * left corner, and which of them are beside the table or a seat rather
+     * than at a corner
+     */
+    private static final int[] RING_X = {-2, -1, 0, 1, 2, 2, 2, 1, 0, -1, -2, -2};
+    private static final int[] RING_Y = {-1, -1, -1, -1, -1, 0, 1, 1, 1, 1, 1, 0};
+    private static final int RING_SIDES = 0xBAE;
+    
+    /**
+     * Working space for building levels, one per thread as levels are built
+     * on the pipeline thread and by the evaluator's pool at the same time.
+     * Kept from one build to the next, so generating a level allocates
+     * nothing per tile.
+     */
+    private static final ThreadLocal<BuildScratch> SCRATCH = new ThreadLocal<BuildScratch>()
+    {
+        @Override
+        protected BuildScratch initialValue()
+        {
+            return new BuildScratch();
+        }
+    };
+    
+    private static final class BuildScratch
+    {
+        final IntList spawns = new IntList(1024);
+        long[] foodOrDoor = new long[0];
+        long[] nearFoodOrDoor = new long[0];
+        
+        /**
+         * makes the planes big enough for a level, they only ever grow
+         */
+        void fit(int words)
+        {
+            if(foodOrDoor.length < words)
+            {
+                foodOrDoor = new long[words];
+                nearFoodOrDoor = new long[words];
+            }
+        }
+    }
     
 
-   
-    public Level(int w, int h, int levelNum, GameEngine e)
+    /**
+     * Builds a new level from a randomly chosen tile map, or a procedural map
+     * if the engine is set to use them
+     * @param w width in tiles
+     * @param h height in tiles
+     * @param levelNum the level number, used for difficulty
+     * @param e the engine the level belongs to, may be null
+     * @param rng the random source for this level, owned by the level from now on
+     */
+    public Level(int w, int h, int levelNum, GameEngine e, GameRandom rng)
+    {
+        this(w, h, levelNum, e, rng, e != null && e.isProceduralLevels() ? PROCEDURAL : rng.nextInt(Tilemap.getCount()));
+    }
+    
+    /**
+     * Builds a new level from a given tile map, e.g. to evaluate one template
+     * @param w width in tiles, at least the template width; bigger levels stretch the template
+     * @param h height in tiles, at least the template height
+     * @param levelNum the level number, used for difficulty
+     * @param e the engine the level belongs to, may be null
+     * @param rng the random source for this level, owned by the level from now on
+     * @param mapIndex the Tilemap template to build from, or PROCEDURAL for a
+     * ProceduralMap seeded from rng
+     */
+    public Level(int w, int h, int levelNum, GameEngine e, GameRandom rng, int mapIndex)
     {
+        random = rng;
         _difficulty = calculateDiff(levelNum);
         _playWidth = w;
         _playHeight = h;
@@ -39,12 +113,62 @@ public class Level
         gEngine = e;
         
         
-        tilemaps = new Tilemap(w, h, levelNum);
-        layout = genMap(tilemaps);
+        currentLevelIndex = mapIndex;
+        LevelTemplate template = mapIndex == PROCEDURAL ? new ProceduralMap(w, h, rng.nextLong()) : Tilemap.get(mapIndex);
+        layout = genMap(template);
+        flowField = new FlowField(layout, seats);
         
         
         
         
+    }
+    
+    /**
+     * Restores a level from state written by writeTo, without generating anything
+     * @param e the engine the level belongs to, may be null
+     * @param buf a buffer positioned at the saved level
+     */
+    Level(GameEngine e, ByteBuffer buf)
+    {
+        gEngine = e;
+        _playWidth = buf.getInt();
+        _playHeight = buf.getInt();
+        currentLevelNum = buf.getInt();
+        _difficulty = calculateDiff(currentLevelNum);
+        currentLevelIndex = buf.getInt();
+        customerCount = buf.getInt();
+        random = GameRandom.readFrom(buf);
+        _playerSpawnLoc = new GridPoint(buf.getInt(), buf.getInt());
+        
+        layout = new TileGrid(_playWidth, _playHeight);
+        buf.get(layout.cells());
+        
+        _spawnCells = new int[buf.getInt()];
+        buf.asIntBuffer().get(_spawnCells);
+        buf.position(buf.position() + _spawnCells.length * 4);
+        
+        seats = SeatIndex.readFrom(buf, _playWidth, _playHeight);
+        flowField = new FlowField(layout, seats, buf);
+        board = new LevelBitboard(layout);
+    }
+    
+    /**
+     * writes everything needed to carry on playing this level, for a GameSnapshot
+     * @param buf the buffer to write to
+     */
+    void writeTo(ByteBuffer buf)
+    {
+        buf.putInt(_playWidth).putInt(_playHeight).putInt(currentLevelNum).putInt(currentLevelIndex).putInt(customerCount);
+        random.writeTo(buf);
+        buf.putInt(_playerSpawnLoc.x).putInt(_playerSpawnLoc.y);
+        buf.put(layout.cells());
+        
+        buf.putInt(_spawnCells.length);
+        buf.asIntBuffer().put(_spawnCells);
+        buf.position(buf.position() + _spawnCells.length * 4);
+        
+        seats.writeTo(buf);
+        flowField.writeTo(buf);
     }
     /**
      * calculates a difficulty modifier f(x) = log10(x+1) 
@@ -60,23 +184,22 @@ public class Level
      * INCLUSIVE!!
      * @param min smallest desired return value
      * @param max largest desired return value
-     * @return random int between min-max (inclusive)
+     * @return uniformly distributed random int between min-max (inclusive)
      */
     public int getRandomInt(int min, int max)
     {
-        return (int) (Math.random() * (max+1))| min;
+        return random.nextInt(min, max+1);
     }
     
     
     /**
      * Generates new 2d tile array from tile map
-     * @param tm tile map seed
+     * @param tm the tile map template or procedural map to build from
      * @return 2d tile array ~ layout
      */
-    private TileType[][] genMap(Tilemap tm)
+    private TileGrid genMap(LevelTemplate tm)
     {
-        currentLevelIndex = getRandomInt(0, tilemaps.getSize());
-        TileType[][] l = new TileType[_playWidth][_playHeight];
+        TileGrid l = new TileGrid(_playWidth, _playHeight);
         int floorSwitch = 0;
         
         if (currentLevelIndex > 0)
@@ -88,104 +211,121 @@ public class Level
         {
             for (int j = 0; j < _playHeight; j++)
             {
-                if (l[i][j] == null)
+                switch(tm.getTile(i, j, _playWidth, _playHeight))
                 {
-                    switch(tm.getTile(j, i))
-                    {
-                        case 0:
-                            l[i][j] = TileType.WALL;
-                            break;
-                            
-                        case 1:
-                        default:
-                            if(floorSwitch < 1)
-                            {
-                                l[i][j] = TileType.FLOOR1;
-                            }
-                            else
-                            {
-                                l[i][j] = TileType.FLOOR2;
-                            }
-                            break;
+                    case 0:
+                        l.set(i, j, TileType.WALL);
+                        break;
+                        
+                    case 1:
+                    default:
+                        if(floorSwitch < 1)
+                        {
+                            l.set(i, j, TileType.FLOOR1);
+                        }
+                        else
+                        {
+                            l.set(i, j, TileType.FLOOR2);
+                        }
+                        break;
+                    
+                    case 2:
+                        l.set(i, j, TileType.DOOR);
                         
-                        case 2:
-                            l[i][j] = TileType.DOOR;
-                            
-                            if (i <=0)
-                             {
-                                 _playerSpawnLoc = new Point(i+1, j);
-                             }
-                             else if (i >= _playWidth - 1 )
-                             {
-                                 _playerSpawnLoc = new Point(i-1, j);
-                             }
-                             else if (j <= 0)
-                             {
-                                 _playerSpawnLoc = new Point(i, j+1);
-                             }
-                             else if(j >= _playHeight - 1)
-                             {
-                                 _playerSpawnLoc = new Point(i, j-1);
-                             }
-                             break;
-                        case 3:
-                            l[i][j] = TileType.FOOD1;
-                            break;
-                        case 4:
-                            l[i][j] = TileType.FOOD2;
-                            break;
-                        case 5:
-                            l[i][j] = TileType.FOOD3;  
-                            
-                            
+                        if (i <=0)
+                         {
+                             _playerSpawnLoc = new GridPoint(i+1, j);
+                         }
+                         else if (i >= _playWidth - 1 )
+                         {
+                             _playerSpawnLoc = new GridPoint(i-1, j);
+                         }
+                         else if (j <= 0)
+                         {
+                             _playerSpawnLoc = new GridPoint(i, j+1);
+                         }
+                         else if(j >= _playHeight - 1)
+                         {
+                             _playerSpawnLoc = new GridPoint(i, j-1);
+                         }
+                         break;
+                    case 3:
+                        l.set(i, j, TileType.FOOD1);
+                        break;
+                    case 4:
+                        l.set(i, j, TileType.FOOD2);
+                        break;
+                    case 5:
+                        l.set(i, j, TileType.FOOD3);  
                         
-                    }
+                        
+                    
                 }
             }
         }
+        board = new LevelBitboard(l);
         l = spawnObstacles(l);
             
         
         return l;
     }
     
-    public TileType[][] getLayout()
+    public TileGrid getLayout()
     {
         return layout;
     }
     
+    /**
+     * @return the tiles of the level as bitboards, including its tables
+     */
+    public LevelBitboard getBitboard()
+    {
+        return board;
+    }
+    
     /**
      * populates the layout with table tiles
      * @param L the 2d tile array ~ layout
      * @return the updated 2d array
      */
-    private TileType[][] spawnObstacles(TileType[][] L)
+    private TileGrid spawnObstacles(TileGrid L)
     {
-        _spawnLocs = new ArrayList<Point>();
-        customerCount = calculateCustomerCount();
+        BuildScratch scratch = SCRATCH.get();
+        IntList spawns = scratch.spawns;
+        spawns.clear();
+        seats = new SeatIndex(_playWidth, _playHeight);
+        customerCount = getRequestedCustomerCount();
         int tableCount = (int) (customerCount * 4);
+        //food and doors never change here, so the tiles next to them are found once
+        scratch.fit(board.getWords());
+        LevelBitboard.or(board.food(), board.door(), scratch.foodOrDoor);
+        board.neighbours(scratch.foodOrDoor, scratch.nearFoodOrDoor);
+        long[] nearFoodOrDoor = scratch.nearFoodOrDoor;
        for (int i = 1; i < _playWidth-1; i++)
        {
            for(int j = 1; j< _playHeight-1; j++)
            {
-               if(L[i][j] == TileType.FLOOR1 || L[i][j] == TileType.FLOOR2)
+               if(TileFlags.isSpawnable(L.flags(i, j)))
                {
-                   if(checkSpaceForTable(L,i,j) == true && tableCount > 0)
+                   if(checkSpaceForTable(nearFoodOrDoor,i,j) == true && tableCount > 0)
                    {
                        int r = getRandomInt(0, 100);
                        
                        if(r <= 10)
                        {
-                           if(L[i-1][j] == TileType.WALL || L[i+1][j] == TileType.WALL)
+                           if(board.isBlocking(i-1, j) || board.isBlocking(i+1, j)
+                                   || (currentLevelIndex == PROCEDURAL && blocksWay(nearFoodOrDoor, i, j)))
                            {
                                continue;
                            }
-                            L[i][j] = TileType.TABLE;
+                            L.set(i, j, TileType.TABLE);
+                            board.placeTable(i, j);
+                            seats.addTable(i, j);
                             tableCount--;
                        }
                        else
                        {
-                           generateGenericSpawnPoints(L, customerCount, i,j);
+                           generateGenericSpawnPoints(nearFoodOrDoor, spawns, customerCount, i,j);
 
                        }
                    }
@@ -193,7 +333,7 @@ public class Level
                    else
                    {
                        
-                       generateGenericSpawnPoints(L, customerCount, i,j);
+                       generateGenericSpawnPoints(nearFoodOrDoor, spawns, customerCount, i,j);
 
                    }
                }
@@ -201,81 +341,116 @@ public class Level
                
            }
        }
+       _spawnCells = spawns.toArray();
+       indexSeats(L);
+       if(currentLevelIndex == PROCEDURAL)
+       {
+           //a customer with nowhere to sit stands in the way of the caves' narrower paths
+           customerCount = Math.min(customerCount, seats.getSeatCount());
+       }
        return L;
     }
     
-    private void generateGenericSpawnPoints(TileType[][] L, int count, int i, int j)
+    /**
+     * adds the floor tiles either side of each table to the seat index
+     * @param L the 2d tile array ~ layout
+     */
+    private void indexSeats(TileGrid L)
     {
-        if(count > 0)
+        for(int t = 0; t < seats.getTableCount(); t++)
         {
-            Point p = new Point(i,j);
-            if(p.getX() != _playerSpawnLoc.getLocation().x && p.getY() != _playerSpawnLoc.y)
+            int x = seats.getTableX(t);
+            int y = seats.getTableY(t);
+            if(board.isWalkable(x-1, y))
             {
-                if(L[i-1][j] == TileType.DOOR || L[i-1][j] == TileType.FOOD1 || L[i-1][j] == TileType.FOOD2 ||L[i-1][j] == TileType.FOOD3)
-                {
-                    return;
-                }
-                if(L[i+1][j] == TileType.DOOR || L[i+1][j] == TileType.FOOD1 || L[i+1][j] == TileType.FOOD2 ||L[i+1][j] == TileType.FOOD3)
-                {
-                    return;
-                }
-                if(L[i][j-1] == TileType.DOOR || L[i][j-1] == TileType.FOOD1 || L[i][j-1] == TileType.FOOD2 ||L[i][j-1] == TileType.FOOD3)
-                {
-                    return;
-                }
-                if(L[i][j+1] == TileType.DOOR || L[i][j+1] == TileType.FOOD1 || L[i][j+1] == TileType.FOOD2 ||L[i][j+1] == TileType.FOOD3)
-                {
-                    return;
-                }
-                _spawnLocs.add(new Point(i,j));
+                seats.addSeat(x-1, y);
+            }
+            if(board.isWalkable(x+1, y))
+            {
+                seats.addSeat(x+1, y);
             }
         }
     }
     
     /**
-     * checks adjacent tiles to ensure a table spawns without blocking other tiles (like the door)
-     * @param L the 2d array of tiles ~ layout
+     * adds a floor tile to the customer spawn points, unless it is next to
+     * food or a door or in line with the player spawn
+     * @param nearFoodOrDoor the tiles next to food or a door
+     * @param spawns the spawn points found so far, packed as y*width + x
+     * @param count the number of customers the level will have
      * @param i the current x position
      * @param j the current y position
-     * @return defaults true, returns false on FOOD, DOOR and, TABLE(X-axis only)
      */
-    private boolean checkSpaceForTable(TileType[][] L, int i, int j)
+    private void generateGenericSpawnPoints(long[] nearFoodOrDoor, IntList spawns, int count, int i, int j)
     {
-        if(i > 0)
-        {
-            if(L[i-1][j] == TileType.DOOR || (L[i-1][j] == TileType.FOOD1 
-                    || L[i-1][j] == TileType.FOOD2 || L[i-1][j] == TileType.FOOD3) 
-                    || L[i-1][j] == TileType.TABLE)
-            {
-                return false;
-            }
-        }
-        if (i < _playWidth)
+        if(count > 0)
         {
-            if(L[i+1][j] == TileType.DOOR || (L[i+1][j] == TileType.FOOD1 
-                    || L[i+1][j] == TileType.FOOD2 || L[i+1][j] == TileType.FOOD3)
-                    || L[i+1][j] == TileType.TABLE)
+            if(i != _playerSpawnLoc.x && j != _playerSpawnLoc.y)
             {
-                return false;
+                if(board.contains(nearFoodOrDoor, i, j))
+                {
+                    return;
+                }
+                spawns.add(j * _playWidth + i);
             }
         }
-        if(j > 0)
+    }
+    
+    /**
+     * Checks if a table on a tile would get in the way, for procedural levels
+     * whose caves have narrower paths than the templates. Customers sitting
+     * either side of a table block the way as much as the table does, so the
+     * table and both its seats are checked together: they must not be next to
+     * food, the door, a wall or another table and its seats, and at most one
+     * of the four corners round them may be closed, so the floor round them
+     * stays joined up and there is a way past both above and below.
+     * @param nearFoodOrDoor the tiles next to food or a door
+     * @param i the current x position
+     * @param j the current y position
+     * @return true if a table here could leave the way blocked
+     */
+    private boolean blocksWay(long[] nearFoodOrDoor, int i, int j)
+    {
+        if(board.contains(nearFoodOrDoor, i-1, j) || board.contains(nearFoodOrDoor, i+1, j))
         {
-            if(L[i][j-1] == TileType.DOOR || (L[i][j-1] == TileType.FOOD1 
-                    || L[i][j-1] == TileType.FOOD2 || L[i][j-1] == TileType.FOOD3))
-            {
-                return false;
-            }
+            return true;
         }
-        if(j < _playHeight)
+        int closedCorners = 0;
+        for(int k = 0; k < 12; k++)
         {
-            if(L[i][j+1] == TileType.DOOR || (L[i][j+1] == TileType.FOOD1 
-                    || L[i][j+1] == TileType.FOOD2 || L[i][j+1] == TileType.FOOD3))
+            int x = i + RING_X[k];
+            int y = j + RING_Y[k];
+            if(!isOpenFloor(x, y))
             {
-                return false;
+                if((RING_SIDES & (1 << k)) != 0 || board.isWalkable(x, y) || board.isTable(x, y))
+                {
+                    return true;
+                }
+                closedCorners++;
             }
         }
-        return true;
+        //two closed corners could split the floor round the table in two
+        return closedCorners > 1;
+    }
+    
+    /**
+     * @return true for floor that is not the seat of a table, so a sitting customer cannot block it
+     */
+    private boolean isOpenFloor(int x, int y)
+    {
+        return board.isWalkable(x, y) && !board.isTable(x-1, y) && !board.isTable(x+1, y);
+    }
+    
+    /**
+     * checks adjacent tiles to ensure a table spawns without blocking other tiles (like the door)
+     * @param nearFoodOrDoor the tiles next to food or a door
+     * @param i the current x position
+     * @param j the current y position
+     * @return defaults true, returns false next to FOOD, DOOR and, TABLE(X-axis only)
+     */
+    private boolean checkSpaceForTable(long[] nearFoodOrDoor, int i, int j)
+    {
+        return !board.contains(nearFoodOrDoor, i, j) && !board.isTable(i-1, j) && !board.isTable(i+1, j);
     }
     
     
@@ -304,13 +479,17 @@ public class Level
     }
     
     
-    public ArrayList<Point> getGenericSpawnLocs()
+    /**
+     * @return the customer spawn points packed as y*width + x, shared with
+     * the level and not to be changed
+     */
+    public int[] getSpawnCells()
     {
-        return _spawnLocs;
+        return _spawnCells;
     }
     
     
-    private Point GetPlayerSpawnLoc()
+    private GridPoint GetPlayerSpawnLoc()
     {
         return _playerSpawnLoc;
     }
@@ -325,16 +504,75 @@ public class Level
         return GetPlayerSpawnLoc().y;
     }
     
+    /**
+     * @return the index of the Tilemap template this level was built from,
+     * PROCEDURAL if it was made by a ProceduralMap
+     */
+    public int getMapIndex()
+    {
+        return currentLevelIndex;
+    }
+    
     public double getDiff()
     {
       return _difficulty;          
     }
     
+    /**
+     * @return the tables and seats in this level, with which seats are free
+     */
+    public SeatIndex getSeats()
+    {
+        return seats;
+    }
+    
+    /**
+     * @return the distance field customers follow to reach a free seat
+     */
+    public FlowField getFlowField()
+    {
+        return flowField;
+    }
+    
+    /**
+     * marks a seat as taken and updates the flow field to match
+     * @param seat the seat id
+     */
+    public void takeSeat(int seat)
+    {
+        seats.occupy(seat);
+        flowField.seatTaken(seat);
+    }
+    
+    /**
+     * marks a seat as free and updates the flow field to match
+     * @param seat the seat id
+     */
+    public void freeSeat(int seat)
+    {
+        seats.release(seat);
+        flowField.seatFreed(seat);
+    }
+    
     public int getCustomerCount()
     {
         return customerCount;
     }
     
+    /**
+     * @return the number of customers the level number asks for, or the
+     * engine's customers per level if set. This is more than getCustomerCount
+     * when a procedural level has fewer seats
+     */
+    public int getRequestedCustomerCount()
+    {
+        if(gEngine != null && gEngine.getCustomersPerLevel() > 0)
+        {
+            return gEngine.getCustomersPerLevel();
+        }
+        return calculateCustomerCount();
+    }
+    
     public void decrementCustomerCount()
     {
         customerCount--;
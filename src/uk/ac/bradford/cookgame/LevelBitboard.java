@@ -0,0 +1,361 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import uk.ac.bradford.cookgame.GameEngine.TileType;
+
+/**
+ * The tiles of a level as bitboards: one bit per tile, packed into longs row
+ * by row ([y*width + x], the same order as TileGrid), so a 35x18 level is ten
+ * longs a plane. There is a plane each for walkable floor, blocking walls,
+ * food, doors and tables; every tile is in exactly one of them. Tiles are
+ * sorted into the planes by their TileFlags.
+ *
+ * Questions about whole areas of the level then become a few operations per
+ * word instead of a branch per tile: neighbours() shifts a plane one tile in
+ * each direction at once, with masks stopping bits wrapping from one row onto
+ * the next, and reachable() floods through a plane by repeating that until
+ * nothing changes.
+ *
+ * @author JFarrow
+ */
+public final class LevelBitboard
+{
+    private final int width;
+    private final int height;
+    private final int words;
+
+    private final long[] walkable;
+    private final long[] blocking;
+    private final long[] food;
+    private final long[] door;
+    private final long[] table;
+
+    /**
+     * every tile except the first column, and every tile except the last
+     */
+    private final long[] notFirstColumn;
+    private final long[] notLastColumn;
+
+    /**
+     * the bits of the last word that are tiles
+     */
+    private final long lastWordMask;
+
+    /**
+     * Builds the planes from the tiles of a level
+     * @param tiles the level layout
+     */
+    public LevelBitboard(TileGrid tiles)
+    {
+        width = tiles.getWidth();
+        height = tiles.getHeight();
+        int cells = width * height;
+        words = (cells + 63) >>> 6;
+        lastWordMask = (cells & 63) == 0 ? -1L : (1L << (cells & 63)) - 1;
+        walkable = new long[words];
+        blocking = new long[words];
+        food = new long[words];
+        door = new long[words];
+        table = new long[words];
+        notFirstColumn = new long[words];
+        notLastColumn = new long[words];
+
+        byte[] cellTypes = tiles.cells();
+        int doorOrdinal = TileType.DOOR.ordinal();
+        for(int i = 0; i < cells; i++)
+        {
+            long bit = 1L << i;
+            int w = i >>> 6;
+            int flags = TileFlags.ofOrdinal(cellTypes[i]);
+            if(!TileFlags.blocksMovement(flags))
+            {
+                walkable[w] |= bit;
+            }
+            else if(TileFlags.isFood(flags))
+            {
+                food[w] |= bit;
+            }
+            else if(TileFlags.isSeatAnchor(flags))
+            {
+                table[w] |= bit;
+            }
+            else if(cellTypes[i] == doorOrdinal)
+            {
+                door[w] |= bit;
+            }
+            else
+            {
+                blocking[w] |= bit;
+            }
+            int x = i % width;
+            if(x != 0)
+            {
+                notFirstColumn[w] |= bit;
+            }
+            if(x != width - 1)
+            {
+                notLastColumn[w] |= bit;
+            }
+        }
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * @return floor tiles, which customers and the player can walk on. The
+     * planes are shared, not copies, and must not be changed
+     */
+    long[] walkable()
+    {
+        return walkable;
+    }
+
+    /**
+     * @return wall tiles
+     */
+    long[] blocking()
+    {
+        return blocking;
+    }
+
+    /**
+     * @return food tiles of any colour
+     */
+    long[] food()
+    {
+        return food;
+    }
+
+    /**
+     * @return door tiles
+     */
+    long[] door()
+    {
+        return door;
+    }
+
+    /**
+     * @return table tiles
+     */
+    long[] table()
+    {
+        return table;
+    }
+
+    public boolean isWalkable(int x, int y)
+    {
+        return inBounds(x, y) && get(walkable, y * width + x);
+    }
+
+    /**
+     * @return true for walls, and for positions outside the level
+     */
+    public boolean isBlocking(int x, int y)
+    {
+        return !inBounds(x, y) || get(blocking, y * width + x);
+    }
+
+    public boolean isFood(int x, int y)
+    {
+        return inBounds(x, y) && get(food, y * width + x);
+    }
+
+    public boolean isDoor(int x, int y)
+    {
+        return inBounds(x, y) && get(door, y * width + x);
+    }
+
+    public boolean isTable(int x, int y)
+    {
+        return inBounds(x, y) && get(table, y * width + x);
+    }
+
+    private boolean inBounds(int x, int y)
+    {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * Turns a floor tile into a table, for levels placing tables after the
+     * board is built
+     * @param x tile x position
+     * @param y tile y position
+     */
+    void placeTable(int x, int y)
+    {
+        int i = y * width + x;
+        walkable[i >>> 6] &= ~(1L << i);
+        table[i >>> 6] |= 1L << i;
+    }
+
+    /**
+     * @param plane a plane of this board
+     * @param x tile x position, inside the level
+     * @param y tile y position, inside the level
+     * @return true if the tile is set in the plane
+     */
+    public boolean contains(long[] plane, int x, int y)
+    {
+        return get(plane, y * width + x);
+    }
+
+    /**
+     * @return the number of longs in each plane
+     */
+    public int getWords()
+    {
+        return words;
+    }
+
+    /**
+     * @param a a plane
+     * @param b another plane the same size
+     * @return a new plane with the tiles in either
+     */
+    public static long[] or(long[] a, long[] b)
+    {
+        long[] out = new long[a.length];
+        or(a, b, out);
+        return out;
+    }
+
+    /**
+     * Sets out to the tiles in either plane. Allocates nothing.
+     * @param a a plane
+     * @param b another plane the same size
+     * @param out the plane to write to, at least as long as a
+     */
+    public static void or(long[] a, long[] b, long[] out)
+    {
+        for(int k = 0; k < a.length; k++)
+        {
+            out[k] = a[k] | b[k];
+        }
+    }
+
+    /**
+     * @param plane a plane of this board
+     * @return a new plane of the tiles with a neighbour above, below, left or
+     * right of them in the given plane
+     */
+    public long[] neighbours(long[] plane)
+    {
+        long[] out = new long[words];
+        neighbours(plane, out);
+        return out;
+    }
+
+    /**
+     * Sets out to the tiles with a neighbour above, below, left or right of
+     * them in plane. Allocates nothing. Both arrays may be longer than a
+     * plane, e.g. scratch arrays reused between levels; the extra longs are
+     * not read or written.
+     * @param plane a plane of this board
+     * @param out the plane to write to, must not be plane
+     */
+    public void neighbours(long[] plane, long[] out)
+    {
+        int rowWords = width >>> 6;
+        int rowBits = width & 63;
+        for(int k = 0; k < words; k++)
+        {
+            //the tile to the left is one bit lower, to the right one bit higher
+            long left = (plane[k] << 1) | (k > 0 ? plane[k - 1] >>> 63 : 0);
+            long right = (plane[k] >>> 1) | (k + 1 < words ? plane[k + 1] << 63 : 0);
+            //the tile above is width bits lower, below width bits higher
+            long above = fromLower(plane, k - rowWords, rowBits);
+            long below = fromHigher(plane, k + rowWords, rowBits);
+            out[k] = (left & notFirstColumn[k]) | (right & notLastColumn[k]) | above | below;
+        }
+        out[words - 1] &= lastWordMask;
+    }
+
+    /**
+     * word k of the plane shifted to higher bits by rowWords*64 + bits, where from is k - rowWords
+     */
+    private long fromLower(long[] plane, int from, int bits)
+    {
+        long w = from >= 0 ? plane[from] : 0;
+        if(bits == 0)
+        {
+            return w;
+        }
+        long lower = from - 1 >= 0 ? plane[from - 1] : 0;
+        return (w << bits) | (lower >>> (64 - bits));
+    }
+
+    /**
+     * word k of the plane shifted to lower bits by rowWords*64 + bits, where from is k + rowWords
+     */
+    private long fromHigher(long[] plane, int from, int bits)
+    {
+        long w = from < words ? plane[from] : 0;
+        if(bits == 0)
+        {
+            return w;
+        }
+        long higher = from + 1 < words ? plane[from + 1] : 0;
+        return (w >>> bits) | (higher << (64 - bits));
+    }
+
+    /**
+     * Flood fills from a tile through the tiles of a plane
+     * @param x tile x position to start from
+     * @param y tile y position to start from
+     * @param passable the tiles that can be passed through, the start does not need to be one
+     * @return a new plane of the tiles reached, including the start
+     */
+    public long[] reachable(int x, int y, long[] passable)
+    {
+        long[] reached = new long[words];
+        long[] next = new long[words];
+        int start = y * width + x;
+        reached[start >>> 6] = 1L << start;
+        boolean grew = true;
+        while(grew)
+        {
+            neighbours(reached, next);
+            grew = false;
+            for(int k = 0; k < words; k++)
+            {
+                long r = reached[k] | (next[k] & passable[k]);
+                if(r != reached[k])
+                {
+                    reached[k] = r;
+                    grew = true;
+                }
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * @param plane a plane
+     * @return the number of tiles in it
+     */
+    public static int count(long[] plane)
+    {
+        int n = 0;
+        for(long w : plane)
+        {
+            n += Long.bitCount(w);
+        }
+        return n;
+    }
+
+    private static boolean get(long[] plane, int i)
+    {
+        return (plane[i >>> 6] & (1L << i)) != 0;
+    }
+}
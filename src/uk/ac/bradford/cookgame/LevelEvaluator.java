@@ -0,0 +1,257 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Monte Carlo evaluation of level settings. For every Tilemap template and
+ * level number (which sets the customer count) it builds many seeded levels,
+ * plays each one headless with a GreedyAgent and records how it went. Runs are
+ * spread over a ForkJoinPool; each run has its own engine and writes to its own
+ * slot in the result arrays, so nothing is shared while they play.
+ *
+ * @author JFarrow
+ */
+public class LevelEvaluator 
+{
+    /**
+     * runs handled by one fork/join task before it stops splitting
+     */
+    private static final int BATCH = 8;
+    
+    private final int[] mapIndexes;
+    private final int[] levelNumbers;
+    private final int runsPerConfig;
+    private final int maxTurns;
+    private final long baseSeed;
+    
+    //one slot per run, run r of configuration c is at c*runsPerConfig + r
+    private final boolean[] cleared;
+    private final int[] turns;
+    private final int[] score;
+    private final int[] failedSpawns;
+    private final int[] unreachableSeats;
+    
+    /**
+     * @param mapIndexes the Tilemap templates to evaluate
+     * @param levelNumbers the level numbers to evaluate each template at
+     * @param runsPerConfig how many seeded levels to play per template and level number
+     * @param maxTurns turns after which an uncleared level counts as failed
+     * @param baseSeed seed that every run's seed is derived from
+     */
+    public LevelEvaluator(int[] mapIndexes, int[] levelNumbers, int runsPerConfig, int maxTurns, long baseSeed)
+    {
+        this.mapIndexes = mapIndexes.clone();
+        this.levelNumbers = levelNumbers.clone();
+        this.runsPerConfig = runsPerConfig;
+        this.maxTurns = maxTurns;
+        this.baseSeed = baseSeed;
+        
+        int total = getConfigCount() * runsPerConfig;
+        cleared = new boolean[total];
+        turns = new int[total];
+        score = new int[total];
+        failedSpawns = new int[total];
+        unreachableSeats = new int[total];
+    }
+    
+    public int getConfigCount()
+    {
+        return mapIndexes.length * levelNumbers.length;
+    }
+    
+    /**
+     * plays every run on the given pool, blocking until they are all done
+     * @param pool the pool to run on
+     */
+    public void evaluate(ForkJoinPool pool)
+    {
+        pool.invoke(new RunTask(0, getConfigCount() * runsPerConfig));
+    }
+    
+    /**
+     * Splits a range of runs in half until it is small enough to play directly
+     */
+    private final class RunTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final int from;
+        private final int to;
+        
+        RunTask(int from, int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            if(to - from <= BATCH)
+            {
+                GreedyAgent agent = new GreedyAgent();
+                for(int i = from; i < to; i++)
+                {
+                    play(i, agent);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RunTask(from, mid), new RunTask(mid, to));
+        }
+    }
+    
+    /**
+     * plays a single run and stores its results
+     * @param run the run's slot in the result arrays
+     * @param agent the agent to play with
+     */
+    private void play(int run, GreedyAgent agent)
+    {
+        int config = run / runsPerConfig;
+        int mapIndex = mapIndexes[config / levelNumbers.length];
+        int levelNum = levelNumbers[config % levelNumbers.length];
+        GameRandom rng = new GameRandom(runSeed(config, run % runsPerConfig));
+        
+        GameEngine engine = new GameEngine(NullRenderSink.INSTANCE, levelNum, rng.nextLong());
+        engine.setPrintScore(false);
+        LevelPipeline pipeline = LevelPipeline.onDemand();
+        Level level = new Level(GameEngine.LEVEL_WIDTH, GameEngine.LEVEL_HEIGHT, levelNum, engine, rng.split(), mapIndex);
+        pipeline.offer(levelNum, level);
+        engine.setLevelPipeline(pipeline);
+        engine.startGame();
+        
+        int spawned = engine.getCustomers().size();
+        failedSpawns[run] = level.getRequestedCustomerCount() - spawned;
+        unreachableSeats[run] = countUnreachableSeats(level);
+        
+        int t = 0;
+        while(t < maxTurns && engine.getLevelNumber() == levelNum)
+        {
+            char move = agent.nextMove(engine);
+            if(move != ' ')
+            {
+                engine.movePlayer(move);
+            }
+            engine.doTurn();
+            t++;
+        }
+        cleared[run] = engine.getLevelNumber() != levelNum;
+        turns[run] = t;
+        score[run] = engine.getScore();
+    }
+    
+    /**
+     * @return the seed for a run, fixed by the base seed, configuration and run number
+     */
+    private long runSeed(int config, int run)
+    {
+        return baseSeed + 0x9e3779b97f4a7c15L * ((long) config * runsPerConfig + run + 1);
+    }
+    
+    /**
+     * counts the seats customers cannot walk to from the door
+     * @param level the level to check
+     * @return the number of seats not connected to the player spawn by floor tiles
+     */
+    static int countUnreachableSeats(Level level)
+    {
+        LevelBitboard board = level.getBitboard();
+        SeatIndex seats = level.getSeats();
+        long[] reached = board.reachable(level.getPlayerSpawnX(), level.getPlayerSpawnY(), board.walkable());
+        int unreachable = 0;
+        for(int s = 0; s < seats.getSeatCount(); s++)
+        {
+            if(!board.contains(reached, seats.getSeatX(s), seats.getSeatY(s)))
+            {
+                unreachable++;
+            }
+        }
+        return unreachable;
+    }
+    
+    /**
+     * Prints one line of statistics per template and level number
+     */
+    public void printReport()
+    {
+        System.out.println("map level  runs cleared%  turns(p50  p90 mean)  score  failedSpawns  unreachableSeats");
+        for(int c = 0; c < getConfigCount(); c++)
+        {
+            int from = c * runsPerConfig;
+            int to = from + runsPerConfig;
+            int clearedRuns = 0;
+            long scoreSum = 0;
+            long failedSum = 0;
+            long unreachableSum = 0;
+            int[] clearTurns = new int[runsPerConfig];
+            for(int i = from; i < to; i++)
+            {
+                if(cleared[i])
+                {
+                    clearTurns[clearedRuns++] = turns[i];
+                }
+                scoreSum += score[i];
+                failedSum += failedSpawns[i];
+                unreachableSum += unreachableSeats[i];
+            }
+            Arrays.sort(clearTurns, 0, clearedRuns);
+            long turnSum = 0;
+            for(int i = 0; i < clearedRuns; i++)
+            {
+                turnSum += clearTurns[i];
+            }
+            System.out.printf("%3d %5d %5d %8.1f  %10s %4s %4s  %5.2f %13.2f %17.2f%n",
+                    mapIndexes[c / levelNumbers.length], levelNumbers[c % levelNumbers.length], runsPerConfig,
+                    100.0 * clearedRuns / runsPerConfig,
+                    percentile(clearTurns, clearedRuns, 50), percentile(clearTurns, clearedRuns, 90),
+                    clearedRuns == 0 ? "-" : String.valueOf(turnSum / clearedRuns),
+                    (double) scoreSum / runsPerConfig, (double) failedSum / runsPerConfig,
+                    (double) unreachableSum / runsPerConfig);
+        }
+    }
+    
+    private static String percentile(int[] sorted, int count, int p)
+    {
+        if(count == 0){return "-";}
+        return String.valueOf(sorted[Math.min(count - 1, (count * p) / 100)]);
+    }
+    
+    /**
+     * Evaluates every template at a spread of level numbers.
+     * @param args optional runs per configuration (default 1000), max turns
+     * per run (default 5000), seed (default 1) and number of threads (default
+     * all processors)
+     */
+    public static void main(String[] args)
+    {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int maxTurns = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        
+        int[] maps = new int[Tilemap.getCount()];
+        for(int i = 0; i < maps.length; i++)
+        {
+            maps[i] = i;
+        }
+        int[] levels = {0, 1, 2, 5, 10};
+        
+        LevelEvaluator evaluator = new LevelEvaluator(maps, levels, runs, maxTurns, seed);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        evaluator.evaluate(pool);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+        
+        evaluator.printReport();
+        int total = evaluator.getConfigCount() * runs;
+        System.out.printf("%d runs on %d threads in %.2f s (%.0f runs/s)%n", total, threads, seconds, total / seconds);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Builds the next Level while the current one is being played, so finishing a
+ * level does not stall the game while the new one is generated. The GameEngine
+ * asks for level N+1 as soon as level N starts and takes it when level N is
+ * cleared; if it is not finished yet the engine waits for it then.
+ * 
+ * The random source for a level is handed over when it is prepared, so a
+ * seeded game builds the same levels whether they are made in the background
+ * or not.
+ *
+ * @author JFarrow
+ */
+public class LevelPipeline 
+{
+    private final Executor executor;
+    private FutureTask<Level> pending;
+    private int pendingLevelNum = -1;
+    
+    /**
+     * @param executor where levels are built
+     */
+    public LevelPipeline(Executor executor)
+    {
+        this.executor = executor;
+    }
+    
+    /**
+     * @return a pipeline that builds levels on a shared low priority background thread
+     */
+    public static LevelPipeline background()
+    {
+        return new LevelPipeline(BackgroundExecutor.INSTANCE);
+    }
+    
+    /**
+     * @return a pipeline that only builds a level when it is taken, on the
+     * calling thread, for headless and batch runs that should not start extra
+     * threads or build levels that are never played
+     */
+    public static LevelPipeline onDemand()
+    {
+        return new LevelPipeline(new Executor()
+        {
+            @Override
+            public void execute(Runnable r)
+            {
+                //left for take() to run
+            }
+        });
+    }
+    
+    /**
+     * Starts building a level, replacing any level prepared before that was not taken
+     * @param w width in tiles
+     * @param h height in tiles
+     * @param levelNum the level number
+     * @param e the engine the level belongs to
+     * @param rng the random source for the level, must not be used by anything else
+     */
+    public void prepare(final int w, final int h, final int levelNum, final GameEngine e, final GameRandom rng)
+    {
+        if(pending != null)
+        {
+            pending.cancel(false);
+        }
+        pending = new FutureTask<Level>(new Callable<Level>()
+        {
+            @Override
+            public Level call()
+            {
+                return new Level(w, h, levelNum, e, rng);
+            }
+        });
+        pendingLevelNum = levelNum;
+        executor.execute(pending);
+    }
+    
+    /**
+     * Queues a level that has already been built, e.g. a chosen template for
+     * the first level of an evaluation run
+     * @param levelNum the level number
+     * @param level the finished level
+     */
+    public void offer(int levelNum, final Level level)
+    {
+        if(pending != null)
+        {
+            pending.cancel(false);
+        }
+        pending = new FutureTask<Level>(new Callable<Level>()
+        {
+            @Override
+            public Level call()
+            {
+                return level;
+            }
+        });
+        pendingLevelNum = levelNum;
+        pending.run();
+    }
+    
+    /**
+     * Hands over a prepared level. If the executor has not started building it
+     * yet it is built on the calling thread, otherwise this waits for it.
+     * @param levelNum the level number wanted
+     * @return the prepared level, or null if that level number was not prepared
+     */
+    public Level take(int levelNum)
+    {
+        if(pending == null || pendingLevelNum != levelNum){return null;}
+        
+        FutureTask<Level> task = pending;
+        pending = null;
+        pendingLevelNum = -1;
+        task.run();     //does nothing if already started or finished
+        boolean interrupted = false;
+        try
+        {
+            while(true)
+            {
+                try
+                {
+                    return task.get();
+                }
+                catch(InterruptedException ex)
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        catch(ExecutionException ex)
+        {
+            throw new IllegalStateException("building level " + levelNum + " failed", ex.getCause());
+        }
+        finally
+        {
+            if(interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Holder for the shared background thread, only started if a background pipeline is used
+     */
+    private static final class BackgroundExecutor
+    {
+        static final ExecutorService INSTANCE = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "level-pipeline");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }
+        });
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+/**
+ * Somewhere a Level gets its walls, floor, door and food from: either one of
+ * the hand made Tilemap templates or a ProceduralMap.
+ *
+ * Tile codes: 0 wall, 1 floor, 2 door, 3 red food, 4 green food, 5 brown food
+ *
+ * @author JFarrow
+ */
+public interface LevelTemplate
+{
+    /**
+     * @param x tile x position in the level
+     * @param y tile y position in the level
+     * @param w level width
+     * @param h level height
+     * @return the tile code at the position
+     */
+    int getTile(int x, int y, int w, int h);
+}
@@ -0,0 +1,167 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load tests a SessionHost in process: opens a number of sessions and sends
+ * each of them key presses at a fixed rate, as if from that many clients, then
+ * reports how many turns were played and how far the sessions fell behind.
+ * With a rate of 0 every session is kept busy instead, which shows the most
+ * turns a core can play; dividing that by the rate a real client sends gives
+ * the number of sessions a core can sustain.
+ *
+ * @author JFarrow
+ */
+public class LoadDriver
+{
+    private static final char[] KEYS = {'U', 'D', 'L', 'R', ' '};
+
+    /**
+     * how often key presses are sent, in nanoseconds
+     */
+    private static final long TICK = 10000000L;
+
+    private final GameSession[] sessions;
+    private final long[] submitted;
+    private final int rate;
+    private final GameRandom random;
+
+    /**
+     * Opens the sessions to drive
+     * @param host the host to open them on
+     * @param count the number of sessions
+     * @param rate the key presses sent to each session a second, 0 to keep every session busy
+     * @param seed the seed for the sessions and key presses
+     */
+    public LoadDriver(SessionHost host, int count, int rate, long seed)
+    {
+        this.rate = rate;
+        random = new GameRandom(seed);
+        sessions = new GameSession[count];
+        submitted = new long[count];
+        for(int i = 0; i < count; i++)
+        {
+            sessions[i] = host.open(random.nextLong());
+        }
+    }
+
+    /**
+     * Sends key presses for a while, printing the turn rate every second
+     * @param seconds how long to run for
+     * @return the number of turns played by all sessions
+     */
+    public long run(int seconds)
+    {
+        long start = System.nanoTime();
+        long end = start + seconds * 1000000000L;
+        long nextReport = start + 1000000000L;
+        long lastTurns = 0;
+        long now;
+        while((now = System.nanoTime()) < end)
+        {
+            //a busy session is topped up to two batches ahead of what it has played
+            long target = (now - start) * rate / 1000000000L;
+            for(int i = 0; i < sessions.length; i++)
+            {
+                long want = rate > 0 ? target : sessions[i].getTurns() + 2 * GameSession.BATCH;
+                while(submitted[i] < want && sessions[i].submit(KEYS[random.nextInt(KEYS.length)]))
+                {
+                    submitted[i]++;
+                }
+            }
+            if(now >= nextReport)
+            {
+                long turns = getTurns();
+                System.out.printf("%,d turns/s, %,d behind%n", turns - lastTurns, getBacklog());
+                lastTurns = turns;
+                nextReport += 1000000000L;
+            }
+            LockSupport.parkNanos(TICK);
+        }
+        return getTurns();
+    }
+
+    /**
+     * @return the turns played by all sessions so far
+     */
+    public long getTurns()
+    {
+        long turns = 0;
+        for(GameSession s : sessions)
+        {
+            turns += s.getTurns();
+        }
+        return turns;
+    }
+
+    /**
+     * @return the key presses sent but not played yet, over all sessions
+     */
+    public long getBacklog()
+    {
+        long sent = 0;
+        for(long n : submitted)
+        {
+            sent += n;
+        }
+        return sent - getTurns();
+    }
+
+    /**
+     * @return the first exception thrown by a turn of any session, null if
+     * every turn played so far has worked
+     */
+    public RuntimeException getFailure()
+    {
+        for(GameSession s : sessions)
+        {
+            if(s.getFailure() != null)
+            {
+                return s.getFailure();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs a load test and prints the result.
+     * @param args optional number of sessions, default 1000, then key presses
+     * a second for each session, default 10 and 0 to keep them all busy, then
+     * seconds to run, default 10, then the number of threads, default one per
+     * core
+     * @throws InterruptedException if interrupted while shutting down
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int rate = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        SessionHost host = new SessionHost(threads);
+        long opening = System.nanoTime();
+        LoadDriver driver = new LoadDriver(host, count, rate, GameRandom.randomSeed());
+        System.out.printf("opened %d sessions in %.0f ms%n", count, (System.nanoTime() - opening) / 1e6);
+
+        long turns = driver.run(seconds);
+        double perCore = turns / (double) seconds / threads;
+        System.out.printf("%,d turns on %d threads, %,.0f turns/s per thread, %,d behind at the end%n",
+                turns, threads, perCore, driver.getBacklog());
+        if(rate > 0)
+        {
+            //less than a tenth of a second of input outstanding counts as keeping up
+            boolean keptUp = driver.getBacklog() <= (long) count * rate / 10;
+            System.out.printf("%s with %d sessions per thread at %d turns/s each%n",
+                    keptUp ? "kept up" : "fell behind", count / threads, rate);
+        }
+        if(driver.getFailure() != null)
+        {
+            System.out.println("A session failed: " + driver.getFailure());
+        }
+        host.shutdown();
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+/**
+ * A RenderSink that ignores every update. Used when the engine is run headless
+ * and only the simulation matters.
+ *
+ * @author JFarrow
+ */
+public final class NullRenderSink implements RenderSink 
+{
+    /**
+     * shared instance, the sink has no state
+     */
+    public static final NullRenderSink INSTANCE = new NullRenderSink();
+    
+    private NullRenderSink()
+    {
+    }
+
+    @Override
+    public void updateDisplay(TileGrid tiles, Player player, CustomerStore customers)
+    {
+        //nothing to draw
+    }
+}
@@ -162,39 +162,13 @@ public class Player extends Entity {
         if(!super.collisionCheck(neighbour, exclusion)){return false;}
         
         //It must be a food block
-        switch(neighbour)
+        int flags = TileFlags.of(neighbour);
+        if(TileFlags.isFood(flags))
         {
-            case FOOD1:
-                grabFood(1);
-                return false; //Don't walk through food block
-                
-            case FOOD2:
-                grabFood(2);
-                return false; //Don't walk through food block
-                
-            case FOOD3:
-                grabFood(3);
-                return false; //Don't walk through food block
+            grabFood(TileFlags.foodId(flags));
+            return false; //Don't walk through food block
         }
         
-        return true;
-    }
-    
-    /**
-     * checks for colliding positions between player and customer
-     * @param c customer to check against
-     * @return Boolean value based on collision presence
-     */
-    public boolean customerCollision(Customer c)
-    {
-        if(c == null){return false;}
-        
-        if(c.getX() == this.getX() && c.getY() == this.getY())
-        {
-            return true;
-        }
-        
-        
-        return false;
+        return !TileFlags.blocksMovement(flags);
     }
 }
@@ -0,0 +1,455 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A level layout made from a seed instead of drawn by hand, at any size. The
+ * inside of the level is split in two again and again (binary space
+ * partitioning) until the pieces are room sized. Each room is grown into a
+ * cave by a cellular automaton and cut down to its biggest connected area,
+ * then the two halves of every split are joined by a corridor between them,
+ * so the whole map is connected. Last of all a door is cut into the outside
+ * wall and the three foods are set into walls next to the floor.
+ *
+ * A room only writes its own tiles and a corridor stays inside the area that
+ * was split, so the two halves of each split are built at the same time as
+ * fork/join tasks. Every split and room draws its random numbers from a seed
+ * made from the map seed and its position, so a seed gives the same map
+ * however many threads build it.
+ *
+ * Tile codes: 0 wall, 1 floor, 2 door, 3 red food, 4 green food, 5 brown food
+ *
+ * @author JFarrow
+ */
+public final class ProceduralMap implements LevelTemplate
+{
+    private static final byte WALL = 0;
+    private static final byte FLOOR = 1;
+    private static final byte DOOR = 2;
+    private static final byte RED_FOOD = 3;
+
+    /**
+     * rooms are never split smaller than this a side, counting the wall each
+     * room keeps along its right and bottom edges
+     */
+    private static final int MIN_ROOM = 6;
+
+    /**
+     * areas bigger than this a side are always split
+     */
+    private static final int MAX_ROOM = 24;
+
+    /**
+     * areas with fewer tiles than this are built on one thread, splitting the
+     * work any finer costs more than it saves
+     */
+    private static final int SEQUENTIAL_AREA = 128 * 128;
+
+    /**
+     * the chance of a room tile starting as wall before the cave is grown
+     */
+    private static final int WALL_PERCENT = 35;
+    private static final int SMOOTHING_PASSES = 4;
+
+    /**
+     * random tries at finding each food a spot in the open before settling for any wall
+     */
+    private static final int FOOD_TRIES = 10000;
+
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {-1, 1, 0, 0};
+
+    /**
+     * Working space for growing rooms, one per thread and kept between rooms
+     * and maps, so building a map allocates nothing per room. Rooms are laid
+     * out in it with a ring of wall round them, so counting the walls round a
+     * tile needs no bounds checks.
+     */
+    private static final ThreadLocal<RoomScratch> SCRATCH = new ThreadLocal<RoomScratch>()
+    {
+        @Override
+        protected RoomScratch initialValue()
+        {
+            return new RoomScratch();
+        }
+    };
+
+    private static final class RoomScratch
+    {
+        final byte[] cells = new byte[(MAX_ROOM + 2) * (MAX_ROOM + 2)];
+        final byte[] next = new byte[(MAX_ROOM + 2) * (MAX_ROOM + 2)];
+        final int[] label = new int[(MAX_ROOM + 2) * (MAX_ROOM + 2)];
+        final int[] queue = new int[(MAX_ROOM + 2) * (MAX_ROOM + 2)];
+    }
+
+    private final int width;
+    private final int height;
+    private final long seed;
+
+    /**
+     * tile codes, indexed [y*width + x]
+     */
+    private final byte[] tiles;
+
+    /**
+     * Generates a map. The halves of big splits are handed to the fork/join
+     * pool of the calling thread, or the common pool when called from any
+     * other thread.
+     * @param w width in tiles, at least MIN_ROOM + 2
+     * @param h height in tiles, at least MIN_ROOM + 2
+     * @param seed the same seed and size always give the same map
+     */
+    public ProceduralMap(int w, int h, long seed)
+    {
+        if(w < MIN_ROOM + 2 || h < MIN_ROOM + 2)
+        {
+            throw new IllegalArgumentException("maps must be at least " + (MIN_ROOM + 2) + "x" + (MIN_ROOM + 2)
+                    + " tiles, got " + w + "x" + h);
+        }
+        width = w;
+        height = h;
+        this.seed = seed;
+        tiles = new byte[w * h];
+
+        //everything starts as wall, the outside wall is never split into
+        Region inside = new Region(1, 1, w - 2, h - 2);
+        inside.invoke();
+
+        GameRandom r = new GameRandom(seed);
+        placeDoor(r, inside.anchorX, inside.anchorY);
+        placeFood(r);
+    }
+
+    /**
+     * cuts a door into a random side of the outside wall, in line with a
+     * floor tile, and a corridor from that tile to it
+     */
+    private void placeDoor(GameRandom r, int ax, int ay)
+    {
+        switch(r.nextInt(4))
+        {
+            case 0:
+                carveCorridor(ax, ay, 1, ay, 1, 1, width - 2, height - 2);
+                tiles[ay * width] = DOOR;
+                break;
+            case 1:
+                carveCorridor(ax, ay, width - 2, ay, 1, 1, width - 2, height - 2);
+                tiles[ay * width + width - 1] = DOOR;
+                break;
+            case 2:
+                carveCorridor(ax, ay, ax, 1, 1, 1, width - 2, height - 2);
+                tiles[ax] = DOOR;
+                break;
+            default:
+                carveCorridor(ax, ay, ax, height - 2, 1, 1, width - 2, height - 2);
+                tiles[(height - 1) * width + ax] = DOOR;
+                break;
+        }
+    }
+
+    /**
+     * Turns three inside walls next to the floor into the three foods, by
+     * walking from random floor tiles in a random direction until they hit
+     * something. Walls do not connect anything, so the map stays connected.
+     * The floor in front of a food has to be open on the other three sides,
+     * so one customer standing in a nook cannot cut the player off from it;
+     * after many tries any wall next to the floor will do.
+     */
+    private void placeFood(GameRandom r)
+    {
+        int food = RED_FOOD;
+        int tries = 0;
+        while(food < RED_FOOD + 3)
+        {
+            boolean strict = tries++ < FOOD_TRIES;
+            int x = r.nextInt(1, width - 1);
+            int y = r.nextInt(1, height - 1);
+            if(tiles[y * width + x] != FLOOR)
+            {
+                continue;
+            }
+            int dir = r.nextInt(4);
+            while(tiles[(y + DY[dir]) * width + x + DX[dir]] == FLOOR)
+            {
+                x += DX[dir];
+                y += DY[dir];
+            }
+            if(strict && (tiles[(y - DY[dir]) * width + x - DX[dir]] != FLOOR
+                    || tiles[(y + DX[dir]) * width + x + DY[dir]] != FLOOR
+                    || tiles[(y - DX[dir]) * width + x - DY[dir]] != FLOOR))
+            {
+                continue;
+            }
+            x += DX[dir];
+            y += DY[dir];
+            if(x > 0 && y > 0 && x < width - 1 && y < height - 1 && tiles[y * width + x] == WALL)
+            {
+                tiles[y * width + x] = (byte) food++;
+                tries = 0;
+            }
+        }
+    }
+
+    /**
+     * Sets a straight corridor three tiles wide to floor, cut off at the
+     * edges of an area. Corridors are wide so customers standing in one
+     * cannot shut it.
+     * @param x0 x position of one end of the middle of the corridor
+     * @param y0 y position of one end
+     * @param x1 x position of the other end, in line with the first
+     * @param y1 y position of the other end
+     * @param left the first column of the area
+     * @param top the first row of the area
+     * @param right the last column of the area
+     * @param bottom the last row of the area
+     */
+    private void carveCorridor(int x0, int y0, int x1, int y1, int left, int top, int right, int bottom)
+    {
+        int fromX = Math.max(Math.min(x0, x1) - 1, left);
+        int toX = Math.min(Math.max(x0, x1) + 1, right);
+        int fromY = Math.max(Math.min(y0, y1) - 1, top);
+        int toY = Math.min(Math.max(y0, y1) + 1, bottom);
+        for(int cy = fromY; cy <= toY; cy++)
+        {
+            for(int cx = fromX; cx <= toX; cx++)
+            {
+                tiles[cy * width + cx] = FLOOR;
+            }
+        }
+    }
+
+    public int getTile(int x, int y)
+    {
+        return tiles[y * width + x];
+    }
+
+    /**
+     * The map is made at the size of the level, it is not stretched
+     * @param w level width, must be getWidth()
+     * @param h level height, must be getHeight()
+     */
+    @Override
+    public int getTile(int x, int y, int w, int h)
+    {
+        if(w != width || h != height)
+        {
+            throw new IllegalArgumentException("map is " + width + "x" + height + ", not " + w + "x" + h);
+        }
+        return tiles[y * width + x];
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * An area of the map being split into rooms. After compute() its tiles are
+     * built and anchorX, anchorY is a floor tile connected to all the floor in it.
+     */
+    private final class Region extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final int x;
+        private final int y;
+        private final int w;
+        private final int h;
+        private int anchorX;
+        private int anchorY;
+
+        Region(int x, int y, int w, int h)
+        {
+            this.x = x;
+            this.y = y;
+            this.w = w;
+            this.h = h;
+        }
+
+        @Override
+        protected void compute()
+        {
+            long key = ((long) x << 48) ^ ((long) y << 32) ^ ((long) w << 16) ^ h;
+            GameRandom r = new GameRandom(seed ^ key).split();
+            boolean splitX = w >= 2 * MIN_ROOM;
+            boolean splitY = h >= 2 * MIN_ROOM;
+            //areas that fit in a room are only split sometimes, for rooms of mixed sizes
+            if((!splitX && !splitY) || (w <= MAX_ROOM && h <= MAX_ROOM && r.nextInt(2) == 0))
+            {
+                buildRoom(r);
+                return;
+            }
+            Region a;
+            Region b;
+            if(splitX && (!splitY || w >= h))
+            {
+                int at = r.nextInt(MIN_ROOM, w - MIN_ROOM + 1);
+                a = new Region(x, y, at, h);
+                b = new Region(x + at, y, w - at, h);
+            }
+            else
+            {
+                int at = r.nextInt(MIN_ROOM, h - MIN_ROOM + 1);
+                a = new Region(x, y, w, at);
+                b = new Region(x, y + at, w, h - at);
+            }
+            if(w * h >= SEQUENTIAL_AREA)
+            {
+                invokeAll(a, b);
+            }
+            else
+            {
+                a.compute();
+                b.compute();
+            }
+            //an L shaped corridor between two tiles inside this area, kept inside it
+            int right = x + w - 1;
+            int bottom = y + h - 1;
+            if(r.nextInt(2) == 0)
+            {
+                carveCorridor(a.anchorX, a.anchorY, b.anchorX, a.anchorY, x, y, right, bottom);
+                carveCorridor(b.anchorX, a.anchorY, b.anchorX, b.anchorY, x, y, right, bottom);
+            }
+            else
+            {
+                carveCorridor(a.anchorX, a.anchorY, a.anchorX, b.anchorY, x, y, right, bottom);
+                carveCorridor(a.anchorX, b.anchorY, b.anchorX, b.anchorY, x, y, right, bottom);
+            }
+            Region kept = r.nextInt(2) == 0 ? a : b;
+            anchorX = kept.anchorX;
+            anchorY = kept.anchorY;
+        }
+
+        /**
+         * Grows a cave in the area and keeps its biggest connected part. A
+         * tile with more than 4 walls among the 8 round it becomes wall, one
+         * with fewer becomes floor. The room's right and bottom edges stay
+         * wall, as does everything outside it.
+         */
+        private void buildRoom(GameRandom r)
+        {
+            RoomScratch s = SCRATCH.get();
+            byte[] cells = s.cells;
+            byte[] next = s.next;
+            int pw = w + 2;
+            int size = pw * (h + 2);
+            Arrays.fill(cells, 0, size, WALL);
+            Arrays.fill(next, 0, size, WALL);
+            for(int ly = 0; ly < h - 1; ly++)
+            {
+                for(int lx = 0, i = (ly + 1) * pw + 1; lx < w - 1; lx++, i++)
+                {
+                    cells[i] = r.nextInt(100) < WALL_PERCENT ? WALL : FLOOR;
+                }
+            }
+            for(int pass = 0; pass < SMOOTHING_PASSES; pass++)
+            {
+                for(int ly = 0; ly < h - 1; ly++)
+                {
+                    for(int lx = 0, i = (ly + 1) * pw + 1; lx < w - 1; lx++, i++)
+                    {
+                        //floor is 1 and wall 0, so this is the number of floor tiles round it
+                        int floors = cells[i - pw - 1] + cells[i - pw] + cells[i - pw + 1] + cells[i - 1]
+                                + cells[i + 1] + cells[i + pw - 1] + cells[i + pw] + cells[i + pw + 1];
+                        next[i] = floors < 4 ? WALL : floors > 4 ? FLOOR : cells[i];
+                    }
+                }
+                byte[] t = cells;
+                cells = next;
+                next = t;
+            }
+            keepLargestArea(cells, s.label, s.queue);
+        }
+
+        /**
+         * Writes the biggest connected area of floor in the room to the map and
+         * anchors the room at the tile of it nearest the middle. A room with no
+         * floor left gets a single floor tile in the middle for the corridors
+         * to meet at.
+         */
+        private void keepLargestArea(byte[] cells, int[] label, int[] queue)
+        {
+            int pw = w + 2;
+            int size = pw * (h + 2);
+            int midX = (w - 1) / 2;
+            int midY = (h - 1) / 2;
+            Arrays.fill(label, 0, size, 0);
+            int best = 0;
+            int bestSize = 0;
+            int bestCell = (midY + 1) * pw + midX + 1;
+            int areas = 0;
+            for(int i = pw + 1; i < size - pw; i++)
+            {
+                if(cells[i] != FLOOR || label[i] != 0)
+                {
+                    continue;
+                }
+                int id = ++areas;
+                int nearest = i;
+                int nearestDist = Integer.MAX_VALUE;
+                label[i] = id;
+                queue[0] = i;
+                int head = 0;
+                int tail = 1;
+                while(head < tail)
+                {
+                    int c = queue[head++];
+                    int dist = Math.abs(c % pw - 1 - midX) + Math.abs(c / pw - 1 - midY);
+                    if(dist < nearestDist)
+                    {
+                        nearest = c;
+                        nearestDist = dist;
+                    }
+                    tail = visit(cells, label, queue, tail, c - pw, id);
+                    tail = visit(cells, label, queue, tail, c + pw, id);
+                    tail = visit(cells, label, queue, tail, c - 1, id);
+                    tail = visit(cells, label, queue, tail, c + 1, id);
+                }
+                if(tail > bestSize)
+                {
+                    best = id;
+                    bestSize = tail;
+                    bestCell = nearest;
+                }
+            }
+            for(int ly = 0; ly < h; ly++)
+            {
+                int row = (y + ly) * width + x;
+                for(int lx = 0, i = (ly + 1) * pw + 1; lx < w; lx++, i++)
+                {
+                    if(best != 0 && label[i] == best)
+                    {
+                        tiles[row + lx] = FLOOR;
+                    }
+                }
+            }
+            anchorX = x + bestCell % pw - 1;
+            anchorY = y + bestCell / pw - 1;
+            tiles[anchorY * width + anchorX] = FLOOR;
+        }
+
+        /**
+         * adds a room tile to the area being flood filled if it is floor not yet in an area
+         * @return the new queue tail
+         */
+        private int visit(byte[] cells, int[] label, int[] queue, int tail, int c, int id)
+        {
+            if(cells[c] == FLOOR && label[c] == 0)
+            {
+                label[c] = id;
+                queue[tail++] = c;
+            }
+            return tail;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+/**
+ * An immutable copy of everything needed to draw a single turn of the game.
+ * Player and customer values are copied out of the live objects so the frame
+ * stays valid after the engine moves on to the next turn.
+ *
+ * @author JFarrow
+ */
+public final class RenderFrame 
+{
+    private final TileGrid tiles;
+    
+    private final boolean hasPlayer;
+    private final int playerX;
+    private final int playerY;
+    private final int playerStamina;
+    private final int playerMaxStamina;
+    private final int playerFood;
+    
+    private final int customerCount;
+    private final int[] customerX;
+    private final int[] customerY;
+    private final int[] customerPatience;
+    private final int[] customerMaxPatience;
+    private final int[] customerFood;
+    
+    private RenderFrame(TileGrid tiles, Player player, CustomerStore customers)
+    {
+        this.tiles = tiles;
+        
+        hasPlayer = player != null;
+        playerX = hasPlayer ? player.getX() : 0;
+        playerY = hasPlayer ? player.getY() : 0;
+        playerStamina = hasPlayer ? player.getStamina() : 0;
+        playerMaxStamina = hasPlayer ? player.getMaxStamina() : 0;
+        playerFood = hasPlayer ? player.getCarriedFoodType() : 0;
+        
+        int count = customers != null ? customers.size() : 0;
+        customerCount = count;
+        customerX = new int[count];
+        customerY = new int[count];
+        customerPatience = new int[count];
+        customerMaxPatience = new int[count];
+        customerFood = new int[count];
+        if(count > 0)
+        {
+            customers.copyTo(customerX, customerY, customerPatience, customerMaxPatience, customerFood);
+        }
+    }
+    
+    /**
+     * Copies the given game state into a new frame
+     * @param tiles the level tiles, shared rather than copied as they only change between levels
+     * @param player the player, may be null
+     * @param customers the customers, may be null
+     * @return a frame holding the state at the time of the call
+     */
+    public static RenderFrame capture(TileGrid tiles, Player player, CustomerStore customers)
+    {
+        return new RenderFrame(tiles, player, customers);
+    }
+    
+    public TileGrid getTiles()
+    {
+        return tiles;
+    }
+    
+    public boolean hasPlayer()
+    {
+        return hasPlayer;
+    }
+    
+    public int getPlayerX()
+    {
+        return playerX;
+    }
+    
+    public int getPlayerY()
+    {
+        return playerY;
+    }
+    
+    public int getPlayerStamina()
+    {
+        return playerStamina;
+    }
+    
+    public int getPlayerMaxStamina()
+    {
+        return playerMaxStamina;
+    }
+    
+    /**
+     * @return 0 for no food, 1 for red food, 2 for green food, 3 for brown food
+     */
+    public int getPlayerFood()
+    {
+        return playerFood;
+    }
+    
+    /**
+     * @return the number of customers in this frame
+     */
+    public int getCustomerCount()
+    {
+        return customerCount;
+    }
+    
+    public int getCustomerX(int i)
+    {
+        return customerX[i];
+    }
+    
+    public int getCustomerY(int i)
+    {
+        return customerY[i];
+    }
+    
+    public int getCustomerPatience(int i)
+    {
+        return customerPatience[i];
+    }
+    
+    public int getCustomerMaxPatience(int i)
+    {
+        return customerMaxPatience[i];
+    }
+    
+    public int getCustomerFood(int i)
+    {
+        return customerFood[i];
+    }
+}
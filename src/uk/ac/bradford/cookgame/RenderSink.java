@@ -0,0 +1,24 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+/**
+ * A RenderSink receives the level, player and customers from the GameEngine
+ * at the end of every turn. The GameGUI is one kind of sink, the headless sinks
+ * let the engine run without any Swing or AWT classes being loaded.
+ *
+ * @author JFarrow
+ */
+public interface RenderSink 
+{
+    /**
+     * Called by the GameEngine whenever the state of the game should be shown.
+     *
+     * @param tiles the tiles of the current level
+     * @param player the current player, may be null
+     * @param customers the current customers, may be null
+     */
+    void updateDisplay(TileGrid tiles, Player player, CustomerStore customers);
+}
@@ -0,0 +1,162 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Plays back a file written by a ReplayRecorder on a headless engine, as fast
+ * as the CPU allows. The game can be fast forwarded to any turn and inspected
+ * there, e.g. by passing a SnapshotRenderSink.
+ *
+ * @author JFarrow
+ */
+public class ReplayPlayer 
+{
+    private final long seed;
+    private final int startLevel;
+    private final int levelWidth;
+    private final int levelHeight;
+    private final boolean proceduralLevels;
+    private final byte[] moves;
+    private final RenderSink sink;
+    
+    private GameEngine engine;
+    private int position;
+    
+    /**
+     * Loads a replay file
+     * @param file the replay to load
+     * @param sink where display updates from the replayed game go
+     * @throws IOException if the file cannot be read, is not a replay or was
+     * recorded by a different version of the game
+     */
+    public ReplayPlayer(Path file, RenderSink sink) throws IOException
+    {
+        this.sink = sink;
+        ByteBuffer data;
+        try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            data = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if(data.remaining() < 5 || data.getInt() != ReplayRecorder.MAGIC)
+        {
+            throw new IOException(file + " is not a replay file");
+        }
+        byte version = data.get();
+        if(version != ReplayRecorder.VERSION)
+        {
+            //the game has changed since, so the same keys would play out differently
+            throw new IOException("replay version " + version + " cannot be played, only version "
+                    + ReplayRecorder.VERSION + " replays can");
+        }
+        if(data.remaining() < ReplayRecorder.HEADER_SIZE - 5)
+        {
+            throw new IOException(file + " is not a replay file");
+        }
+        seed = data.getLong();
+        startLevel = data.getInt();
+        levelWidth = data.getInt();
+        levelHeight = data.getInt();
+        proceduralLevels = data.get() != 0;
+        moves = new byte[data.remaining()];
+        data.get(moves);
+        restart();
+    }
+    
+    /**
+     * goes back to the start of the replay with a fresh engine
+     */
+    public final void restart()
+    {
+        engine = new GameEngine(sink, startLevel, seed);
+        engine.setPrintScore(false);
+        engine.setLevelSize(levelWidth, levelHeight);
+        engine.setProceduralLevels(proceduralLevels);
+        engine.startGame();
+        position = 0;
+    }
+    
+    /**
+     * Plays the replay up to the given turn, restarting first if that turn has already been passed
+     * @param turn the number of turns to have played, capped at the length of the replay
+     */
+    public void seek(int turn)
+    {
+        if(turn < position)
+        {
+            restart();
+        }
+        int end = Math.min(turn, moves.length);
+        while(position < end)
+        {
+            engine.playTurn(ReplayRecorder.decode(moves[position++]));
+        }
+    }
+    
+    /**
+     * plays the rest of the replay
+     */
+    public void playToEnd()
+    {
+        seek(moves.length);
+    }
+    
+    /**
+     * @return the number of turns in the replay
+     */
+    public int getLength()
+    {
+        return moves.length;
+    }
+    
+    /**
+     * @return the number of turns played so far
+     */
+    public int getPosition()
+    {
+        return position;
+    }
+    
+    public long getSeed()
+    {
+        return seed;
+    }
+    
+    /**
+     * @return the engine playing the replay, in the state after getPosition() turns
+     */
+    public GameEngine getEngine()
+    {
+        return engine;
+    }
+    
+    /**
+     * Plays a replay and prints where it ends up.
+     * @param args the replay file, then optionally the turn to stop at
+     * @throws IOException if the replay cannot be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 1)
+        {
+            System.out.println("usage: ReplayPlayer <replay file> [turn]");
+            return;
+        }
+        ReplayPlayer player = new ReplayPlayer(Paths.get(args[0]), NullRenderSink.INSTANCE);
+        int turn = args.length > 1 ? Integer.parseInt(args[1]) : player.getLength();
+        long start = System.nanoTime();
+        player.seek(turn);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        GameEngine e = player.getEngine();
+        System.out.printf("seed %d, turn %d of %d: level %d, score %d (%.3f s)%n", player.getSeed(),
+                player.getPosition(), player.getLength(), e.getLevelNumber(), e.getScore(), seconds);
+    }
+}
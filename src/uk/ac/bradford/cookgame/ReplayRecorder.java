@@ -0,0 +1,179 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records a game so it can be played back by a ReplayPlayer. Because every
+ * random choice comes from the session seed, the seed and the key pressed on
+ * each turn are enough to repeat the game exactly.
+ * 
+ * That only holds while the game follows the same rules, so VERSION goes up
+ * whenever a change makes the same seed and keys play out differently, and
+ * ReplayPlayer refuses replays from other versions rather than showing a
+ * different game.
+ * 
+ * File layout, big endian: the int MAGIC, a version byte, the seed as a long,
+ * the starting level number as an int, the level width and height as ints, a
+ * byte that is 1 if the levels are procedural, then one byte per turn: 0 for a
+ * turn with no move, 1 up, 2 down, 3 left, 4 right. Turns are collected in a
+ * buffer and written through a FileChannel when it fills up or the recorder is
+ * closed.
+ *
+ * @author JFarrow
+ */
+public class ReplayRecorder implements Closeable
+{
+    /**
+     * "BDRP", marks a replay file
+     */
+    public static final int MAGIC = 0x42445250;
+    public static final byte VERSION = 4;
+    
+    /**
+     * size of the header in bytes
+     */
+    public static final int HEADER_SIZE = 4 + 1 + 8 + 4 + 8 + 1;
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long turns;
+    
+    private ReplayRecorder(FileChannel channel)
+    {
+        this.channel = channel;
+    }
+    
+    /**
+     * Creates a replay file for a game that has not been started yet
+     * @param file the file to write, replaced if it exists
+     * @param engine the engine to record, its seed, level number, level size
+     * and whether its levels are procedural are written to the header
+     * @return the recorder, to be passed to GameEngine.setReplayRecorder
+     * @throws IOException if the file cannot be created
+     */
+    public static ReplayRecorder create(Path file, GameEngine engine) throws IOException
+    {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ReplayRecorder r = new ReplayRecorder(ch);
+        r.buffer.putInt(MAGIC).put(VERSION).putLong(engine.getSeed()).putInt(engine.getLevelNumber())
+                .putInt(engine.getLevelWidth()).putInt(engine.getLevelHeight())
+                .put((byte) (engine.isProceduralLevels() ? 1 : 0));
+        return r;
+    }
+    
+    /**
+     * Adds a turn to the replay
+     * @param dir U, D, L or R for a move, anything else for a turn without one
+     */
+    public synchronized void record(char dir)
+    {
+        if(!channel.isOpen()){return;}
+        buffer.put(encode(dir));
+        turns++;
+        if(!buffer.hasRemaining())
+        {
+            try
+            {
+                flush();
+            }
+            catch(IOException e)
+            {
+                System.out.println("Exception writing replay: " + e.getMessage());
+                close();
+            }
+        }
+    }
+    
+    /**
+     * @return the number of turns recorded
+     */
+    public synchronized long getTurns()
+    {
+        return turns;
+    }
+    
+    /**
+     * writes any buffered turns to the file
+     * @throws IOException if the write fails
+     */
+    public synchronized void flush() throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    /**
+     * writes any buffered turns and closes the file
+     */
+    @Override
+    public synchronized void close()
+    {
+        if(!channel.isOpen()){return;}
+        try
+        {
+            flush();
+        }
+        catch(IOException e)
+        {
+            System.out.println("Exception writing replay: " + e.getMessage());
+        }
+        try
+        {
+            channel.close();
+        }
+        catch(IOException e)
+        {
+            System.out.println("Exception closing replay: " + e.getMessage());
+        }
+    }
+    
+    static byte encode(char dir)
+    {
+        switch(dir)
+        {
+            case 'U':
+                return 1;
+            case 'D':
+                return 2;
+            case 'L':
+                return 3;
+            case 'R':
+                return 4;
+            default:
+                return 0;
+        }
+    }
+    
+    static char decode(byte b)
+    {
+        switch(b)
+        {
+            case 1:
+                return 'U';
+            case 2:
+                return 'D';
+            case 3:
+                return 'L';
+            case 4:
+                return 'R';
+            default:
+                return ' ';
+        }
+    }
+}
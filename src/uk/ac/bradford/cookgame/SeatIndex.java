@@ -0,0 +1,208 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Index of the tables in a level and the seats next to them. Built once by
+ * Level.spawnObstacles, then kept up to date by the GameEngine as customers
+ * sit down and leave, so finding a free seat never needs a scan of the layout.
+ * 
+ * A seat is the floor tile directly to the left or right of a table.
+ *
+ * @author JFarrow
+ */
+public class SeatIndex 
+{
+    private final int width;
+    private final int height;
+    
+    private int tableCount;
+    private int[] tableX = new int[8];
+    private int[] tableY = new int[8];
+    
+    private int seatCount;
+    private int[] seatX = new int[16];
+    private int[] seatY = new int[16];
+    
+    /**
+     * seat id for every tile in the level, -1 where there is no seat. Indexed [y*width + x], like TileGrid
+     */
+    private final int[] seatAt;
+    
+    /**
+     * set bits are seats nobody is sitting in
+     */
+    private final BitSet freeSeats = new BitSet();
+    
+    public SeatIndex(int w, int h)
+    {
+        width = w;
+        height = h;
+        seatAt = new int[w * h];
+        Arrays.fill(seatAt, -1);
+    }
+    
+    /**
+     * records a table placed in the level
+     * @param x the table x position
+     * @param y the table y position
+     */
+    void addTable(int x, int y)
+    {
+        if(tableCount == tableX.length)
+        {
+            tableX = Arrays.copyOf(tableX, tableCount * 2);
+            tableY = Arrays.copyOf(tableY, tableCount * 2);
+        }
+        tableX[tableCount] = x;
+        tableY[tableCount] = y;
+        tableCount++;
+    }
+    
+    /**
+     * records a seat, tiles shared by two tables are only added once
+     * @param x the seat x position
+     * @param y the seat y position
+     */
+    void addSeat(int x, int y)
+    {
+        if(x < 0 || y < 0 || x >= width || y >= height || seatAt[y * width + x] >= 0){return;}
+        if(seatCount == seatX.length)
+        {
+            seatX = Arrays.copyOf(seatX, seatCount * 2);
+            seatY = Arrays.copyOf(seatY, seatCount * 2);
+        }
+        seatX[seatCount] = x;
+        seatY[seatCount] = y;
+        seatAt[y * width + x] = seatCount;
+        freeSeats.set(seatCount);
+        seatCount++;
+    }
+    
+    public int getTableCount()
+    {
+        return tableCount;
+    }
+    
+    public int getTableX(int table)
+    {
+        return tableX[table];
+    }
+    
+    public int getTableY(int table)
+    {
+        return tableY[table];
+    }
+    
+    public int getSeatCount()
+    {
+        return seatCount;
+    }
+    
+    public int getSeatX(int seat)
+    {
+        return seatX[seat];
+    }
+    
+    public int getSeatY(int seat)
+    {
+        return seatY[seat];
+    }
+    
+    /**
+     * @param x tile x position
+     * @param y tile y position
+     * @return the id of the seat on this tile, or -1 if it is not a seat
+     */
+    public int getSeatAt(int x, int y)
+    {
+        if(x < 0 || y < 0 || x >= width || y >= height){return -1;}
+        return seatAt[y * width + x];
+    }
+    
+    public boolean isFree(int seat)
+    {
+        return freeSeats.get(seat);
+    }
+    
+    /**
+     * @return the id of a free seat, or -1 if every seat is taken
+     */
+    public int firstFreeSeat()
+    {
+        return freeSeats.nextSetBit(0);
+    }
+    
+    public int getFreeSeatCount()
+    {
+        return freeSeats.cardinality();
+    }
+    
+    /**
+     * marks a seat as taken
+     * @param seat the seat id
+     */
+    public void occupy(int seat)
+    {
+        freeSeats.clear(seat);
+    }
+    
+    /**
+     * marks a seat as free again
+     * @param seat the seat id
+     */
+    public void release(int seat)
+    {
+        freeSeats.set(seat);
+    }
+    
+    /**
+     * writes the tables, seats and which seats are free, for a GameSnapshot
+     * @param buf the buffer to write to
+     */
+    void writeTo(ByteBuffer buf)
+    {
+        buf.putInt(tableCount);
+        for(int t = 0; t < tableCount; t++)
+        {
+            buf.putInt(tableX[t]).putInt(tableY[t]);
+        }
+        buf.putInt(seatCount);
+        for(int s = 0; s < seatCount; s++)
+        {
+            buf.putInt(seatX[s]).putInt(seatY[s]).put((byte) (freeSeats.get(s) ? 1 : 0));
+        }
+    }
+    
+    /**
+     * @param buf a buffer positioned at state written by writeTo
+     * @param w width of the level in tiles
+     * @param h height of the level in tiles
+     * @return the saved seat index
+     */
+    static SeatIndex readFrom(ByteBuffer buf, int w, int h)
+    {
+        SeatIndex index = new SeatIndex(w, h);
+        int tables = buf.getInt();
+        for(int t = 0; t < tables; t++)
+        {
+            index.addTable(buf.getInt(), buf.getInt());
+        }
+        int seats = buf.getInt();
+        for(int s = 0; s < seats; s++)
+        {
+            index.addSeat(buf.getInt(), buf.getInt());
+            if(buf.get() == 0)
+            {
+                index.occupy(s);
+            }
+        }
+        return index;
+    }
+}
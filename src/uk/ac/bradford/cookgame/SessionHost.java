@@ -0,0 +1,149 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many independent headless games in one JVM. Every GameSession has its
+ * own engine and input queue, but they share a small pool of threads, one per
+ * core by default: a session only holds a thread while it has turns to play.
+ * Thousands of mostly idle sessions therefore cost memory for their levels
+ * and nothing else. Level templates come from the shared Tilemap registry,
+ * so they are loaded once for every session.
+ *
+ * Each session builds its levels on demand on the thread playing its turns,
+ * rather than on the background pipeline thread, so one pool thread is the
+ * only thing a session ever runs on.
+ *
+ * @author JFarrow
+ */
+public class SessionHost
+{
+    private final ExecutorService pool;
+    private final int threads;
+    private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<Long, GameSession>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    /**
+     * Creates a host with one thread per core
+     */
+    public SessionHost()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads the number of threads shared by all sessions
+     */
+    public SessionHost(int threads)
+    {
+        this.threads = threads;
+        final AtomicInteger count = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "session-" + count.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Starts a new game that discards its display updates
+     * @param seed the seed for the game session
+     * @return the session, ready for input
+     */
+    public GameSession open(long seed)
+    {
+        return open(seed, NullRenderSink.INSTANCE);
+    }
+
+    /**
+     * Starts a new game. The level is built on the calling thread.
+     * @param seed the seed for the game session
+     * @param sink where display updates go, called from the pool threads
+     * @return the session, ready for input
+     */
+    public GameSession open(long seed, RenderSink sink)
+    {
+        GameEngine engine = new GameEngine(sink, seed);
+        engine.setPrintScore(false);
+        engine.setLevelPipeline(LevelPipeline.onDemand());
+        engine.startGame();
+        GameSession s = new GameSession(nextId.incrementAndGet(), engine, pool);
+        sessions.put(s.getId(), s);
+        return s;
+    }
+
+    /**
+     * @param id a session id
+     * @return the open session with the id, null if there is none
+     */
+    public GameSession get(long id)
+    {
+        return sessions.get(id);
+    }
+
+    /**
+     * Closes a session, dropping its queued input. A turn already being
+     * played is finished.
+     * @param id the session id
+     */
+    public void close(long id)
+    {
+        GameSession s = sessions.remove(id);
+        if(s != null)
+        {
+            s.close();
+        }
+    }
+
+    /**
+     * @return the open sessions, a live view that cannot be changed
+     */
+    public Collection<GameSession> getSessions()
+    {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    public int getSessionCount()
+    {
+        return sessions.size();
+    }
+
+    /**
+     * @return the number of threads shared by the sessions
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Closes every session and stops the pool, waiting for turns being played to finish
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void shutdown() throws InterruptedException
+    {
+        for(Long id : sessions.keySet())
+        {
+            close(id);
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+}
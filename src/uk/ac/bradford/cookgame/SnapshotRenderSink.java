@@ -0,0 +1,41 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+/**
+ * A RenderSink that keeps a RenderFrame of the most recent update instead of
+ * drawing it. Useful for headless runs that still need to look at what would
+ * have been on screen.
+ *
+ * @author JFarrow
+ */
+public class SnapshotRenderSink implements RenderSink 
+{
+    private volatile RenderFrame lastFrame;
+    private long frameCount;
+
+    @Override
+    public void updateDisplay(TileGrid tiles, Player player, CustomerStore customers)
+    {
+        lastFrame = RenderFrame.capture(tiles, player, customers);
+        frameCount++;
+    }
+    
+    /**
+     * @return the frame from the latest update, or null if there has not been one
+     */
+    public RenderFrame getLastFrame()
+    {
+        return lastFrame;
+    }
+    
+    /**
+     * @return the number of updates received so far
+     */
+    public long getFrameCount()
+    {
+        return frameCount;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+/**
+ * The tile, player and customer images, loaded once from the assets folder
+ * and shared by every view of the game, along with the code that draws them.
+ * Used by both the Swing Canvas and the actively rendered ActiveCanvas so they
+ * draw a frame the same way.
+ *
+ * @author JFarrow
+ */
+final class SpriteSet
+{
+    private BufferedImage floor1;
+    private BufferedImage floor2;
+    private BufferedImage wall;
+    private BufferedImage player;
+    private BufferedImage playerfood1;
+    private BufferedImage playerfood2;
+    private BufferedImage playerfood3;
+    private BufferedImage customer1;
+    private BufferedImage customer2;
+    private BufferedImage customer3;
+    private BufferedImage door;
+    private BufferedImage food1;
+    private BufferedImage food2;
+    private BufferedImage food3;
+    private BufferedImage table;
+
+    private SpriteSet()
+    {
+        loadTileImages();
+    }
+
+    /**
+     * @return the sprite set, loaded the first time this is called
+     */
+    static SpriteSet shared()
+    {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Loads tiles images from a fixed folder location within the project
+     * directory
+     */
+    private void loadTileImages()
+    {
+        try
+        {
+            floor1 = load("assets/floor1.png");
+            floor2 = load("assets/floor2.png");
+            wall = load("assets/wall.png");
+            player = load("assets/player.png");
+            playerfood1 = load("assets/playerfood.png");
+            playerfood2 = load("assets/playerfood2.png");
+            playerfood3 = load("assets/playerfood3.png");
+            customer1 = load("assets/customer.png");
+            customer2 = load("assets/customer2.png");
+            customer3 = load("assets/customer3.png");
+            food1 = load("assets/food.png");
+            food2 = load("assets/food2.png");
+            food3 = load("assets/food3.png");
+            door = load("assets/door.png");
+            table = load("assets/table.png");
+        }
+        catch(IOException e)
+        {
+            System.out.println("Exception loading images: " + e.getMessage());
+            e.printStackTrace(System.out);
+        }
+    }
+
+    private static BufferedImage load(String path) throws IOException
+    {
+        BufferedImage img = ImageIO.read(new File(path));
+        assert img.getHeight() == GameGUI.TILE_HEIGHT
+                && img.getWidth() == GameGUI.TILE_WIDTH;
+        return img;
+    }
+
+    /**
+     * Draws a block of the tiles of a level, with its top left tile at 0,0.
+     * Parts of the block outside the level are left alone.
+     * @param g2 The graphics object to draw to
+     * @param tiles The tiles to draw from
+     * @param x0 The tile X position of the left of the block
+     * @param y0 The tile Y position of the top of the block
+     * @param columns The width of the block in tiles
+     * @param rows The height of the block in tiles
+     */
+    void drawTiles(Graphics2D g2, TileGrid tiles, int x0, int y0, int columns, int rows)
+    {
+        int maxX = Math.min(tiles.getWidth(), x0 + columns);
+        int maxY = Math.min(tiles.getHeight(), y0 + rows);
+        for(int i = Math.max(0, x0); i < maxX; i++)
+        {
+            for(int j = Math.max(0, y0); j < maxY; j++)
+            {
+                int px = (i - x0) * GameGUI.TILE_WIDTH;
+                int py = (j - y0) * GameGUI.TILE_HEIGHT;
+                switch(tiles.getUnchecked(i, j))
+                {
+                    case FLOOR1:
+                        g2.drawImage(floor1, px, py, null);
+                        break;
+                    case FLOOR2:
+                        g2.drawImage(floor2, px, py, null);
+                        break;
+                    case WALL:
+                        g2.drawImage(wall, px, py, null);
+                        break;
+                    case FOOD1:
+                        g2.drawImage(food1, px, py, null);
+                        break;
+                    case FOOD2:
+                        g2.drawImage(food2, px, py, null);
+                        break;
+                    case FOOD3:
+                        g2.drawImage(food3, px, py, null);
+                        break;
+                    case DOOR:
+                        g2.drawImage(door, px, py, null);
+                        break;
+                    case TABLE:
+                        g2.drawImage(floor1, px, py, null);
+                        g2.drawImage(table, px, py, null);
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws a customer and its patience bar
+     * @param g2 The graphics object to draw to
+     * @param x The tile X position of the customer
+     * @param y The tile Y position of the customer
+     * @param food The food the customer wants, 1 to 3
+     * @param patience The current patience of the customer
+     * @param maxPatience The maximum patience of the customer
+     */
+    void drawCustomer(Graphics2D g2, int x, int y, int food, int patience, int maxPatience)
+    {
+        BufferedImage img;
+        switch(food)
+        {
+            case 2:
+                img = customer2;
+                break;
+            case 3:
+                img = customer3;
+                break;
+            default:
+                img = customer1;
+                break;
+        }
+        g2.drawImage(img, x * GameGUI.TILE_WIDTH, y * GameGUI.TILE_HEIGHT, null);
+        drawBar(g2, x, y, Color.RED, Color.GREEN, patience, maxPatience);
+    }
+
+    /**
+     * Draws the player and its energy bar
+     * @param g2 The graphics object to draw to
+     * @param x The tile X position of the player
+     * @param y The tile Y position of the player
+     * @param food The food the player is carrying, 0 for none
+     * @param stamina The current stamina of the player
+     * @param maxStamina The maximum stamina of the player
+     */
+    void drawPlayer(Graphics2D g2, int x, int y, int food, int stamina, int maxStamina)
+    {
+        BufferedImage img;
+        switch(food)
+        {
+            case 1:
+                img = playerfood1;
+                break;
+            case 2:
+                img = playerfood2;
+                break;
+            case 3:
+                img = playerfood3;
+                break;
+            default:
+                img = player;
+                break;
+        }
+        g2.drawImage(img, x * GameGUI.TILE_WIDTH, y * GameGUI.TILE_HEIGHT, null);
+        drawBar(g2, x, y, Color.BLUE, Color.CYAN, stamina, maxStamina);
+    }
+
+    /**
+     * Draws a bar along the bottom of a tile, filled in proportion to value
+     */
+    private static void drawBar(Graphics2D g2, int x, int y, Color empty, Color full, int value, int max)
+    {
+        int px = x * GameGUI.TILE_WIDTH;
+        int py = y * GameGUI.TILE_HEIGHT + GameGUI.TILE_HEIGHT - GameGUI.BAR_HEIGHT;
+        g2.setColor(empty);
+        g2.fillRect(px, py, GameGUI.TILE_WIDTH, GameGUI.BAR_HEIGHT);
+        g2.setColor(full);
+        g2.fillRect(px, py, barWidth(value, max), GameGUI.BAR_HEIGHT);
+    }
+
+    /**
+     * @return the width in pixels of the filled part of a patience or stamina bar
+     */
+    static int barWidth(int value, int max)
+    {
+        return (int) (GameGUI.TILE_WIDTH * ((double) value / (double) max));
+    }
+
+    private static final class Holder
+    {
+        static final SpriteSet INSTANCE = new SpriteSet();
+    }
+}
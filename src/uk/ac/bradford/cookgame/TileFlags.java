@@ -0,0 +1,135 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import uk.ac.bradford.cookgame.GameEngine.TileType;
+
+/**
+ * What each kind of tile does, worked out once as bit flags in a table indexed
+ * by TileType ordinal. Collision, food and spawn checks read a flag instead of
+ * comparing against a list of tile types, so they are an array load and a
+ * mask however many kinds of tile there are. A new kind of tile only needs a
+ * case in build().
+ *
+ * TileGrid stores tile ordinals, so TileGrid.flags can look a tile's flags up
+ * without going through the TileType at all.
+ *
+ * @author JFarrow
+ */
+public final class TileFlags
+{
+    /**
+     * nothing can walk onto the tile
+     */
+    public static final int BLOCKS_MOVEMENT = 1;
+
+    /**
+     * the player picks food up by walking into the tile, foodId says which
+     */
+    public static final int FOOD = 2;
+
+    /**
+     * the tile is a table, customers sit on the floor either side of it
+     */
+    public static final int SEAT_ANCHOR = 4;
+
+    /**
+     * customers can be placed on the tile when a level starts
+     */
+    public static final int SPAWNABLE = 8;
+
+    /**
+     * the food given by a food tile, 1 to 3, is kept in these bits
+     */
+    private static final int FOOD_ID_SHIFT = 4;
+    private static final int FOOD_ID_MASK = 3 << FOOD_ID_SHIFT;
+
+    private static final int[] FLAGS = build();
+
+    private TileFlags()
+    {
+    }
+
+    private static int[] build()
+    {
+        TileType[] types = TileType.values();
+        int[] flags = new int[types.length];
+        for(TileType t : types)
+        {
+            int f;
+            switch(t)
+            {
+                case FLOOR1:
+                case FLOOR2:
+                    f = SPAWNABLE;
+                    break;
+                case FOOD1:
+                    f = BLOCKS_MOVEMENT | FOOD | (1 << FOOD_ID_SHIFT);
+                    break;
+                case FOOD2:
+                    f = BLOCKS_MOVEMENT | FOOD | (2 << FOOD_ID_SHIFT);
+                    break;
+                case FOOD3:
+                    f = BLOCKS_MOVEMENT | FOOD | (3 << FOOD_ID_SHIFT);
+                    break;
+                case TABLE:
+                    f = BLOCKS_MOVEMENT | SEAT_ANCHOR;
+                    break;
+                default:    //walls and doors
+                    f = BLOCKS_MOVEMENT;
+                    break;
+            }
+            flags[t.ordinal()] = f;
+        }
+        return flags;
+    }
+
+    /**
+     * @param t a tile
+     * @return the flags of the tile
+     */
+    public static int of(TileType t)
+    {
+        return FLAGS[t.ordinal()];
+    }
+
+    /**
+     * @param ordinal a TileType ordinal, as stored in a TileGrid
+     * @return the flags of the tile
+     */
+    static int ofOrdinal(int ordinal)
+    {
+        return FLAGS[ordinal];
+    }
+
+    public static boolean blocksMovement(int flags)
+    {
+        return (flags & BLOCKS_MOVEMENT) != 0;
+    }
+
+    public static boolean isFood(int flags)
+    {
+        return (flags & FOOD) != 0;
+    }
+
+    /**
+     * @param flags the flags of a tile
+     * @return 1 for red food, 2 for green food, 3 for brown food, 0 for a tile that is not food
+     */
+    public static int foodId(int flags)
+    {
+        return (flags & FOOD_ID_MASK) >>> FOOD_ID_SHIFT;
+    }
+
+    public static boolean isSeatAnchor(int flags)
+    {
+        return (flags & SEAT_ANCHOR) != 0;
+    }
+
+    public static boolean isSpawnable(int flags)
+    {
+        return (flags & SPAWNABLE) != 0;
+    }
+}
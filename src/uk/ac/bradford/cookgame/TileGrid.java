@@ -0,0 +1,133 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import uk.ac.bradford.cookgame.GameEngine.TileType;
+
+/**
+ * The tiles of a level stored as one byte per tile in a single flat array,
+ * row by row. Replaces TileType[][] so that reading a tile is one array load
+ * instead of two pointer hops, and copying a level is a single arraycopy.
+ * Each byte holds the ordinal of the tile's TileType.
+ *
+ * @author JFarrow
+ */
+public final class TileGrid 
+{
+    private static final TileType[] TYPES = TileType.values();
+    
+    private final int width;
+    private final int height;
+    
+    /**
+     * tile ordinals, indexed [y*width + x]
+     */
+    private final byte[] cells;
+    
+    /**
+     * Creates a grid with every tile set to WALL
+     * @param w width in tiles
+     * @param h height in tiles
+     */
+    public TileGrid(int w, int h)
+    {
+        width = w;
+        height = h;
+        cells = new byte[w * h];
+    }
+    
+    private TileGrid(TileGrid other)
+    {
+        width = other.width;
+        height = other.height;
+        cells = other.cells.clone();
+    }
+    
+    public int getWidth()
+    {
+        return width;
+    }
+    
+    public int getHeight()
+    {
+        return height;
+    }
+    
+    /**
+     * @param x tile x position
+     * @param y tile y position
+     * @return true if the position is inside the grid
+     */
+    public boolean inBounds(int x, int y)
+    {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+    
+    /**
+     * Bounds checked tile lookup
+     * @param x tile x position
+     * @param y tile y position
+     * @return the tile, or null if the position is outside the grid
+     */
+    public TileType get(int x, int y)
+    {
+        if(!inBounds(x, y)){return null;}
+        return TYPES[cells[y * width + x]];
+    }
+    
+    /**
+     * Tile lookup without a bounds check, for loops that already stay inside the grid
+     * @param x tile x position
+     * @param y tile y position
+     * @return the tile
+     */
+    public TileType getUnchecked(int x, int y)
+    {
+        return TYPES[cells[y * width + x]];
+    }
+    
+    /**
+     * Looks up what a tile does without a bounds check, straight from its
+     * stored ordinal
+     * @param x tile x position
+     * @param y tile y position
+     * @return the TileFlags of the tile
+     */
+    public int flags(int x, int y)
+    {
+        return TileFlags.ofOrdinal(cells[y * width + x]);
+    }
+    
+    /**
+     * Sets a tile
+     * @param x tile x position
+     * @param y tile y position
+     * @param t the new tile type
+     */
+    public void set(int x, int y, TileType t)
+    {
+        if(!inBounds(x, y))
+        {
+            throw new IndexOutOfBoundsException("tile " + x + "," + y + " is outside a " + width + "x" + height + " grid");
+        }
+        cells[y * width + x] = (byte) t.ordinal();
+    }
+    
+    /**
+     * @return a separate grid holding the same tiles
+     */
+    public TileGrid copy()
+    {
+        return new TileGrid(this);
+    }
+    
+    /**
+     * @return the backing array, for code that reads or writes the grid in bulk
+     */
+    byte[] cells()
+    {
+        return cells;
+    }
+}
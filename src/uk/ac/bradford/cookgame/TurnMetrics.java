@@ -0,0 +1,271 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Timings for each phase of a turn, counters and the bytes allocated per
+ * turn, for a GameEngine and the view drawing it. Every timing goes into a
+ * Histogram, so recording never allocates and the metrics can be left on.
+ * register() publishes them over JMX, e.g. to look at with jconsole.
+ * 
+ * The engine records turns from its own thread and the view records drawing
+ * from its thread, so each histogram has a single writer.
+ *
+ * @author JFarrow
+ */
+public class TurnMetrics implements TurnMetricsMBean
+{
+    /**
+     * The parts of a turn that are timed. TURN is the whole of doTurn.
+     */
+    public static enum Phase {
+        TURN, MOVE_CUSTOMERS, CLEAN_FED, DRAW_LEVEL;
+    }
+    
+    private static final Phase[] PHASES = Phase.values();
+    
+    private final Histogram[] timings = new Histogram[PHASES.length];
+    private final Histogram allocation = new Histogram();
+    
+    private volatile long turns;
+    private volatile long customersFed;
+    private volatile long levelsCleared;
+    
+    /**
+     * HotSpot's thread bean, which can report bytes allocated by a thread; null on other JVMs
+     */
+    private final com.sun.management.ThreadMXBean allocationBean;
+    
+    /**
+     * bytes allocated by asking for the allocated bytes, taken off each reading
+     */
+    private final long allocationOverhead;
+    private long turnStartBytes;
+    
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private ObjectName[] registered;
+    
+    public TurnMetrics()
+    {
+        for(int i = 0; i < timings.length; i++)
+        {
+            timings[i] = new Histogram();
+        }
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean hotspot = null;
+        if(bean instanceof com.sun.management.ThreadMXBean)
+        {
+            hotspot = (com.sun.management.ThreadMXBean) bean;
+            if(!hotspot.isThreadAllocatedMemorySupported() || !hotspot.isThreadAllocatedMemoryEnabled())
+            {
+                hotspot = null;
+            }
+        }
+        allocationBean = hotspot;
+        long overhead = 0;
+        if(allocationBean != null)
+        {
+            long first = allocatedBytes();
+            overhead = allocatedBytes() - first;
+        }
+        allocationOverhead = overhead;
+    }
+    
+    private long allocatedBytes()
+    {
+        return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    
+    /**
+     * Marks the start of a turn, called on the engine's thread
+     * @return the start time, to pass to endTurn
+     */
+    public long startTurn()
+    {
+        if(allocationBean != null)
+        {
+            turnStartBytes = allocatedBytes();
+        }
+        return System.nanoTime();
+    }
+    
+    /**
+     * Records the time and allocation of a turn, called on the same thread as startTurn
+     * @param start the time returned by startTurn
+     */
+    public void endTurn(long start)
+    {
+        timings[Phase.TURN.ordinal()].record(System.nanoTime() - start);
+        if(allocationBean != null)
+        {
+            allocation.record(allocatedBytes() - turnStartBytes - allocationOverhead);
+        }
+        turns++;
+    }
+    
+    /**
+     * Records how long a phase took
+     * @param p the phase
+     * @param start the System.nanoTime() when it started
+     */
+    public void record(Phase p, long start)
+    {
+        timings[p.ordinal()].record(System.nanoTime() - start);
+    }
+    
+    void customerFed()
+    {
+        customersFed++;
+    }
+    
+    void levelCleared()
+    {
+        levelsCleared++;
+    }
+    
+    /**
+     * @param p the phase
+     * @return the histogram of times taken by the phase, in nanoseconds
+     */
+    public Histogram getTimings(Phase p)
+    {
+        return timings[p.ordinal()];
+    }
+    
+    /**
+     * @return the histogram of bytes allocated per turn
+     */
+    public Histogram getAllocation()
+    {
+        return allocation;
+    }
+    
+    @Override
+    public long getTurns()
+    {
+        return turns;
+    }
+    
+    @Override
+    public long getCustomersFed()
+    {
+        return customersFed;
+    }
+    
+    @Override
+    public long getLevelsCleared()
+    {
+        return levelsCleared;
+    }
+    
+    @Override
+    public boolean isAllocationTracked()
+    {
+        return allocationBean != null;
+    }
+    
+    @Override
+    public double getAllocatedBytesPerTurn()
+    {
+        return allocation.getMean();
+    }
+    
+    @Override
+    public long getAllocatedBytesP99()
+    {
+        return allocation.getP99();
+    }
+    
+    @Override
+    public long getAllocatedBytesMax()
+    {
+        return allocation.getMax();
+    }
+    
+    @Override
+    public void reset()
+    {
+        for(Histogram h : timings)
+        {
+            h.reset();
+        }
+        allocation.reset();
+        turns = 0;
+        customersFed = 0;
+        levelsCleared = 0;
+    }
+    
+    /**
+     * Publishes these metrics over JMX as uk.ac.bradford.cookgame:type=TurnMetrics,name=[name],
+     * with a Histogram bean for each phase and for allocation
+     * @param name tells the metrics of different games apart
+     * @throws JMException if the beans cannot be registered, e.g. the name is taken
+     */
+    public synchronized void register(String name) throws JMException
+    {
+        unregister();
+        String base = "uk.ac.bradford.cookgame:type=TurnMetrics,name=" + ObjectName.quote(name);
+        ObjectName[] names = new ObjectName[PHASES.length + 2];
+        registered = names;     //so unregister can undo a registration that fails part way
+        names[0] = new ObjectName(base);
+        server.registerMBean(this, names[0]);
+        for(int i = 0; i < PHASES.length; i++)
+        {
+            names[i + 1] = new ObjectName(base + ",phase=" + PHASES[i]);
+            server.registerMBean(timings[i], names[i + 1]);
+        }
+        names[names.length - 1] = new ObjectName(base + ",phase=ALLOCATION");
+        server.registerMBean(allocation, names[names.length - 1]);
+    }
+    
+    /**
+     * removes the beans added by register, if any
+     */
+    public synchronized void unregister()
+    {
+        if(registered == null){return;}
+        for(ObjectName n : registered)
+        {
+            try
+            {
+                if(n != null && server.isRegistered(n))
+                {
+                    server.unregisterMBean(n);
+                }
+            }
+            catch(JMException e)
+            {
+                System.out.println("Exception removing metrics: " + e.getMessage());
+            }
+        }
+        registered = null;
+    }
+    
+    /**
+     * @return one line per phase with its count, p50, p99 and max in microseconds, and the allocation per turn
+     */
+    public String summary()
+    {
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < PHASES.length; i++)
+        {
+            Histogram h = timings[i];
+            sb.append(String.format("%-15s n=%-9d p50=%9.2fus p99=%9.2fus max=%9.2fus%n", PHASES[i], h.getCount(),
+                    h.getP50() / 1e3, h.getP99() / 1e3, h.getMax() / 1e3));
+        }
+        if(isAllocationTracked())
+        {
+            sb.append(String.format("%-15s mean=%.1f B/turn p99=%d B max=%d B%n", "ALLOCATION",
+                    allocation.getMean(), allocation.getP99(), allocation.getMax()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+/**
+ * JMX view of the counters in a TurnMetrics. The timings of each phase are
+ * registered as separate Histogram beans.
+ *
+ * @author JFarrow
+ */
+public interface TurnMetricsMBean 
+{
+    long getTurns();
+    
+    long getCustomersFed();
+    
+    long getLevelsCleared();
+    
+    /**
+     * @return false if this JVM cannot measure allocation, in which case the allocation figures are 0
+     */
+    boolean isAllocationTracked();
+    
+    double getAllocatedBytesPerTurn();
+    
+    long getAllocatedBytesP99();
+    
+    long getAllocatedBytesMax();
+    
+    /**
+     * empties every histogram and counter
+     */
+    void reset();
+}
@@ -0,0 +1,170 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import java.util.Arrays;
+import uk.ac.bradford.cookgame.GameEngine.TileType;
+
+/**
+ * Checks that the patching in FlowField.seatTaken and seatFreed keeps the
+ * field the same as building it from scratch. Builds random walled grids with
+ * random seats, takes and frees seats at random, and after every change
+ * compares the distance of each tile with a plain breadth first search from
+ * the free seats.
+ *
+ * @author JFarrow
+ */
+final class FlowFieldCheck
+{
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+
+    private FlowFieldCheck()
+    {
+    }
+
+    /**
+     * Runs the check and prints the number of mismatched fields, exiting with
+     * status 1 if there were any.
+     * @param args optional number of grids, default 2000, then an optional seed
+     */
+    public static void main(String[] args)
+    {
+        int grids = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+        GameRandom random = new GameRandom(seed);
+        int changes = 0;
+        int bad = 0;
+        for(int g = 0; g < grids; g++)
+        {
+            int w = random.nextInt(3, 40);
+            int h = random.nextInt(3, 25);
+            TileGrid layout = randomGrid(w, h, random);
+            SeatIndex seats = randomSeats(layout, random);
+            FlowField field = new FlowField(layout, seats);
+            int steps = seats.getSeatCount() * 4;
+            for(int s = 0; s < steps; s++)
+            {
+                int seat = random.nextInt(seats.getSeatCount());
+                if(seats.isFree(seat))
+                {
+                    seats.occupy(seat);
+                    field.seatTaken(seat);
+                }
+                else
+                {
+                    seats.release(seat);
+                    field.seatFreed(seat);
+                }
+                changes++;
+                if(!matches(field, layout, seats))
+                {
+                    bad++;
+                    System.out.printf("mismatch: grid %d (%dx%d), change %d%n", g, w, h, s);
+                    break;
+                }
+            }
+        }
+        System.out.printf("%d grids, %d seat changes, %d mismatched%n", grids, changes, bad);
+        if(bad > 0)
+        {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return a grid walled round the edge with about a third of the inside wall
+     */
+    private static TileGrid randomGrid(int w, int h, GameRandom random)
+    {
+        TileGrid layout = new TileGrid(w, h);
+        for(int i = 0; i < w; i++)
+        {
+            for(int j = 0; j < h; j++)
+            {
+                boolean edge = i == 0 || j == 0 || i == w-1 || j == h-1;
+                layout.set(i, j, edge || random.nextInt(3) == 0 ? TileType.WALL : TileType.FLOOR1);
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * @return an index with a seat on about one floor tile in eight, at least one
+     */
+    private static SeatIndex randomSeats(TileGrid layout, GameRandom random)
+    {
+        int w = layout.getWidth();
+        int h = layout.getHeight();
+        SeatIndex seats = new SeatIndex(w, h);
+        for(int i = 0; i < w; i++)
+        {
+            for(int j = 0; j < h; j++)
+            {
+                if(layout.get(i, j) == TileType.FLOOR1 && random.nextInt(8) == 0)
+                {
+                    seats.addSeat(i, j);
+                }
+            }
+        }
+        if(seats.getSeatCount() == 0)
+        {
+            layout.set(1, 1, TileType.FLOOR1);
+            seats.addSeat(1, 1);
+        }
+        return seats;
+    }
+
+    /**
+     * @return true if every tile of the field has the distance a full search gives
+     */
+    private static boolean matches(FlowField field, TileGrid layout, SeatIndex seats)
+    {
+        int w = layout.getWidth();
+        int h = layout.getHeight();
+        int[] dist = new int[w * h];
+        int[] queue = new int[w * h];
+        Arrays.fill(dist, FlowField.UNREACHABLE);
+        int tail = 0;
+        for(int s = 0; s < seats.getSeatCount(); s++)
+        {
+            if(seats.isFree(s))
+            {
+                int cell = seats.getSeatY(s) * w + seats.getSeatX(s);
+                dist[cell] = 0;
+                queue[tail++] = cell;
+            }
+        }
+        for(int head = 0; head < tail; head++)
+        {
+            int cell = queue[head];
+            int x = cell % w;
+            int y = cell / w;
+            for(int d = 0; d < 4; d++)
+            {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if(!layout.inBounds(nx, ny) || TileFlags.blocksMovement(layout.flags(nx, ny))){continue;}
+                int n = ny * w + nx;
+                if(dist[n] == FlowField.UNREACHABLE)
+                {
+                    dist[n] = dist[cell] + 1;
+                    queue[tail++] = n;
+                }
+            }
+        }
+        for(int i = 0; i < w; i++)
+        {
+            for(int j = 0; j < h; j++)
+            {
+                if(field.getDistance(i, j) != dist[j * w + i])
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
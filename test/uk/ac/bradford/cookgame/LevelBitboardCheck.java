@@ -0,0 +1,203 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package uk.ac.bradford.cookgame;
+
+import uk.ac.bradford.cookgame.GameEngine.TileType;
+
+/**
+ * Checks the word-at-a-time operations of LevelBitboard against the same
+ * questions asked one tile at a time. Builds grids of random tiles and sizes,
+ * including widths that are a multiple of 64 and rows that cross from one long
+ * to the next, then compares the planes, neighbours() and reachable() with a
+ * per-tile reference.
+ *
+ * @author JFarrow
+ */
+final class LevelBitboardCheck
+{
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+
+    private LevelBitboardCheck()
+    {
+    }
+
+    /**
+     * Runs the check and prints the number of mismatched grids, exiting with
+     * status 1 if there were any.
+     * @param args optional number of grids, default 2000, then an optional seed
+     */
+    public static void main(String[] args)
+    {
+        int grids = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+        GameRandom random = new GameRandom(seed);
+        TileType[] types = TileType.values();
+        int bad = 0;
+        for(int g = 0; g < grids; g++)
+        {
+            int w = random.nextInt(1, 140);
+            int h = random.nextInt(1, 40);
+            TileGrid tiles = new TileGrid(w, h);
+            for(int i = 0; i < w; i++)
+            {
+                for(int j = 0; j < h; j++)
+                {
+                    //mostly floor, so reachable() has areas to flood
+                    tiles.set(i, j, random.nextInt(3) == 0 ? types[random.nextInt(types.length)] : TileType.FLOOR1);
+                }
+            }
+            LevelBitboard board = new LevelBitboard(tiles);
+            String problem = check(board, tiles, random);
+            if(problem != null)
+            {
+                bad++;
+                System.out.printf("mismatch: grid %d (%dx%d), %s%n", g, w, h, problem);
+            }
+        }
+        System.out.printf("%d grids, %d mismatched%n", grids, bad);
+        if(bad > 0)
+        {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return what did not match, or null if everything did
+     */
+    private static String check(LevelBitboard board, TileGrid tiles, GameRandom random)
+    {
+        int w = tiles.getWidth();
+        int h = tiles.getHeight();
+        boolean[] walkable = new boolean[w * h];
+        for(int i = 0; i < w; i++)
+        {
+            for(int j = 0; j < h; j++)
+            {
+                TileType t = tiles.get(i, j);
+                int flags = TileFlags.of(t);
+                boolean walk = !TileFlags.blocksMovement(flags);
+                walkable[j * w + i] = walk;
+                if(board.isWalkable(i, j) != walk
+                        || board.isFood(i, j) != TileFlags.isFood(flags)
+                        || board.isTable(i, j) != (t == TileType.TABLE)
+                        || board.isDoor(i, j) != (t == TileType.DOOR)
+                        || board.isBlocking(i, j) != (t == TileType.WALL))
+                {
+                    return "planes at " + i + "," + j;
+                }
+            }
+        }
+        if(!board.isBlocking(-1, 0) || !board.isBlocking(w, h-1) || board.isWalkable(w, 0))
+        {
+            return "positions outside the level";
+        }
+
+        long[][] planes = {board.walkable(), board.blocking(), board.food(), board.door(), board.table()};
+        for(long[] plane : planes)
+        {
+            long[] near = board.neighbours(plane);
+            for(int i = 0; i < w; i++)
+            {
+                for(int j = 0; j < h; j++)
+                {
+                    boolean expected = false;
+                    for(int d = 0; d < 4; d++)
+                    {
+                        int nx = i + DX[d];
+                        int ny = j + DY[d];
+                        if(tiles.inBounds(nx, ny) && board.contains(plane, nx, ny))
+                        {
+                            expected = true;
+                        }
+                    }
+                    if(board.contains(near, i, j) != expected)
+                    {
+                        return "neighbours at " + i + "," + j;
+                    }
+                }
+            }
+            if(LevelBitboard.count(near) != countNeighbours(board, plane, tiles))
+            {
+                return "neighbours set bits past the last tile";
+            }
+        }
+
+        for(int k = 0; k < 4; k++)
+        {
+            int sx = random.nextInt(w);
+            int sy = random.nextInt(h);
+            long[] reached = board.reachable(sx, sy, board.walkable());
+            boolean[] expected = flood(walkable, w, h, sx, sy);
+            for(int i = 0; i < w; i++)
+            {
+                for(int j = 0; j < h; j++)
+                {
+                    if(board.contains(reached, i, j) != expected[j * w + i])
+                    {
+                        return "reachable from " + sx + "," + sy + " at " + i + "," + j;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of tiles with a neighbour in the plane
+     */
+    private static int countNeighbours(LevelBitboard board, long[] plane, TileGrid tiles)
+    {
+        int n = 0;
+        for(int i = 0; i < tiles.getWidth(); i++)
+        {
+            for(int j = 0; j < tiles.getHeight(); j++)
+            {
+                for(int d = 0; d < 4; d++)
+                {
+                    int nx = i + DX[d];
+                    int ny = j + DY[d];
+                    if(tiles.inBounds(nx, ny) && board.contains(plane, nx, ny))
+                    {
+                        n++;
+                        break;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return the tiles reached by walking from the start through passable
+     * tiles, including the start
+     */
+    private static boolean[] flood(boolean[] passable, int w, int h, int sx, int sy)
+    {
+        boolean[] reached = new boolean[w * h];
+        int[] queue = new int[w * h];
+        int tail = 0;
+        reached[sy * w + sx] = true;
+        queue[tail++] = sy * w + sx;
+        for(int head = 0; head < tail; head++)
+        {
+            int x = queue[head] % w;
+            int y = queue[head] / w;
+            for(int d = 0; d < 4; d++)
+            {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if(nx < 0 || ny < 0 || nx >= w || ny >= h){continue;}
+                int n = ny * w + nx;
+                if(passable[n] && !reached[n])
+                {
+                    reached[n] = true;
+                    queue[tail++] = n;
+                }
+            }
+        }
+        return reached;
+    }
+}